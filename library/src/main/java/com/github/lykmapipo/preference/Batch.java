@@ -0,0 +1,297 @@
+package com.github.lykmapipo.preference;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import com.github.lykmapipo.common.Common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A group of typed writes persisted to {@link SharedPreferences} in a single commit.
+ * <p>
+ * When keys of a batch are routed to more than one {@link PreferenceStore},
+ * each store is committed once. Snapshots never see part of a batch, but
+ * stores are not persisted atomically with respect to each other.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public final class Batch {
+    /**
+     * Resolve store of each written key
+     *
+     * @since 0.6.0
+     */
+    private final Router router;
+
+    /**
+     * Changes collected per store
+     *
+     * @since 0.6.0
+     */
+    private final Map<PreferenceStore, Changes> changes = new LinkedHashMap<PreferenceStore, Changes>();
+
+    Batch(@NonNull Router router) {
+        this.router = router;
+    }
+
+    /**
+     * Obtain changes collected per store
+     *
+     * @return changes per store
+     * @since 0.6.0
+     */
+    @NonNull
+    Map<PreferenceStore, Changes> changes() {
+        return changes;
+    }
+
+    @NonNull
+    private Changes changes(@NonNull PreferenceStore store) {
+        Changes storeChanges = changes.get(store);
+        if (storeChanges == null) {
+            storeChanges = new Changes(store.editor());
+            changes.put(store, storeChanges);
+        }
+        return storeChanges;
+    }
+
+    @NonNull
+    private SharedPreferences.Editor editor(@NonNull String key) {
+        Changes keyChanges = changes(router.route(key));
+        keyChanges.keys.add(key);
+        keyChanges.strings.remove(key);
+        return keyChanges.editor;
+    }
+
+    /**
+     * Add given String value to the batch, to be packed once the batch is
+     * committed and its keys locked.
+     *
+     * @since 0.6.0
+     */
+    private void put(@NonNull String key, @NonNull String raw) {
+        Changes keyChanges = changes(router.route(key));
+        keyChanges.keys.add(key);
+        keyChanges.strings.put(key, raw);
+    }
+
+    /**
+     * Add a String value to the batch.
+     *
+     * @param key
+     * @param value
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch set(@NonNull String key, @NonNull String value) {
+        put(key, value);
+        return this;
+    }
+
+    /**
+     * Add a StringSet value to the batch.
+     *
+     * @param key
+     * @param value
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch set(@NonNull String key, @NonNull Set<String> value) {
+        editor(key).putStringSet(key, value);
+        return this;
+    }
+
+    /**
+     * Add a StringSet value to the batch.
+     *
+     * @param key
+     * @param values
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch set(@NonNull String key, @NonNull String... values) {
+        Set<String> _set = Common.Value.setOf(values);
+        return set(key, _set);
+    }
+
+    /**
+     * Add a float value to the batch.
+     *
+     * @param key
+     * @param value
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch set(@NonNull String key, @NonNull Float value) {
+        editor(key).putFloat(key, value);
+        return this;
+    }
+
+    /**
+     * Add a long value to the batch.
+     *
+     * @param key
+     * @param value
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch set(@NonNull String key, @NonNull Long value) {
+        editor(key).putLong(key, value);
+        return this;
+    }
+
+    /**
+     * Add an integer value to the batch.
+     *
+     * @param key
+     * @param value
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch set(@NonNull String key, @NonNull Integer value) {
+        editor(key).putInt(key, value);
+        return this;
+    }
+
+    /**
+     * Add a boolean value to the batch.
+     *
+     * @param key
+     * @param value
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch set(@NonNull String key, @NonNull Boolean value) {
+        editor(key).putBoolean(key, value);
+        return this;
+    }
+
+    /**
+     * Add a generic value to the batch.
+     *
+     * @param key
+     * @param value
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public <T> Batch set(@NonNull String key, @NonNull T value) {
+        String raw;
+        try {
+            raw = Codecs.encode(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unable to encode value of " + key, e);
+        }
+        put(key, raw);
+        return this;
+    }
+
+    /**
+     * Add removal of given keys to the batch.
+     *
+     * @param keys
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch remove(@NonNull String... keys) {
+        for (String key : keys) {
+            editor(key).remove(key);
+        }
+        return this;
+    }
+
+    /**
+     * Add removal of all existing values to the batch.
+     * <p>
+     * Clear is always applied first, regardless of its position in the batch.
+     *
+     * @return this batch
+     * @since 0.6.0
+     */
+    @NonNull
+    public Batch clear() {
+        for (PreferenceStore store : router.stores()) {
+            Changes storeChanges = changes(store);
+            storeChanges.cleared = true;
+            storeChanges.editor.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Changes of a single store collected by a batch
+     *
+     * @since 0.6.0
+     */
+    static final class Changes {
+        final SharedPreferences.Editor editor;
+        final Set<String> keys = new HashSet<String>();
+        // String values, packed under store locks when committed
+        final Map<String, String> strings = new LinkedHashMap<String, String>();
+        final List<String> written = new ArrayList<String>();
+        boolean cleared = false;
+
+        Changes(@NonNull SharedPreferences.Editor editor) {
+            this.editor = editor;
+        }
+    }
+
+    /**
+     * Resolve {@link PreferenceStore} which own a key
+     *
+     * @since 0.6.0
+     */
+    interface Router {
+        /**
+         * Obtain store which own given key.
+         *
+         * @param key preference key
+         * @return owning store
+         * @since 0.6.0
+         */
+        @NonNull
+        PreferenceStore route(@NonNull String key);
+
+        /**
+         * Obtain all stores which can own a key.
+         *
+         * @return routed stores
+         * @since 0.6.0
+         */
+        @NonNull
+        Collection<PreferenceStore> stores();
+    }
+
+    /**
+     * Unit of work which record writes into a {@link Batch}
+     *
+     * @since 0.6.0
+     */
+    public interface Action {
+        /**
+         * Record writes into given batch.
+         *
+         * @param batch batch to record writes into
+         * @since 0.6.0
+         */
+        void run(@NonNull Batch batch);
+    }
+}
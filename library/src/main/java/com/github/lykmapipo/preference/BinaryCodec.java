@@ -0,0 +1,81 @@
+package com.github.lykmapipo.preference;
+
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * {@link Codec} which store values as compact, length-prefixed binary fields
+ * encoded in Base64.
+ * <p>
+ * Subclasses write and read fields in the same order, e.g.
+ * <pre>
+ * protected void write(User user, DataOutput output) throws IOException {
+ *     output.writeUTF(user.name);
+ *     output.writeInt(user.age);
+ * }
+ * </pre>
+ *
+ * @param <T> value type
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public abstract class BinaryCodec<T> implements Codec<T> {
+    /**
+     * Leading marker of binary encoded values, never found at the start of json
+     *
+     * @since 0.6.0
+     */
+    static final char MARKER = '\u0001';
+
+    @NonNull
+    @Override
+    public final String encode(@NonNull T value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        write(value, output);
+        output.flush();
+        return MARKER + Base64.encodeToString(bytes.toByteArray(), Base64.NO_WRAP);
+    }
+
+    @Nullable
+    @Override
+    public final T decode(@NonNull String raw) throws IOException {
+        if (raw.isEmpty() || raw.charAt(0) != MARKER) {
+            throw new IOException("Not a binary encoded value");
+        }
+        byte[] bytes = Base64.decode(raw.substring(1), Base64.NO_WRAP);
+        return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Write fields of given value.
+     *
+     * @param value  value to write
+     * @param output binary output
+     * @throws IOException if value can not be written
+     * @since 0.6.0
+     */
+    protected abstract void write(@NonNull T value, @NonNull DataOutput output) throws IOException;
+
+    /**
+     * Read fields of a value, in the order they were written.
+     *
+     * @param input binary input
+     * @return read value
+     * @throws IOException if value can not be read
+     * @since 0.6.0
+     */
+    @Nullable
+    protected abstract T read(@NonNull DataInput input) throws IOException;
+}
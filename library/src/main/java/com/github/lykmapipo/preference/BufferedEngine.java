@@ -0,0 +1,69 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Engine} backed by write-behind {@link BufferedSharedPreferences}
+ * over stores opened by a target engine.
+ * <p>
+ * Rapid writes are merged in memory and written to the target as a single
+ * commit, trading durability of the last quiet period for fewer disk writes.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public class BufferedEngine implements Engine {
+    /**
+     * Opened buffers keyed by name
+     *
+     * @since 0.6.0
+     */
+    private final ConcurrentMap<String, BufferedSharedPreferences> opened =
+            new ConcurrentHashMap<String, BufferedSharedPreferences>();
+
+    private final Engine target;
+    private final long quiet;
+    private final TimeUnit unit;
+    private final int maxPending;
+
+    /**
+     * Create engine of buffers written behind to stores of given engine.
+     *
+     * @param target     persistent storage engine
+     * @param quiet      quiet period before pending changes are written
+     * @param unit       unit of quiet period
+     * @param maxPending number of pending keys which trigger an immediate write
+     * @since 0.6.0
+     */
+    public BufferedEngine(@NonNull Engine target, long quiet, @NonNull TimeUnit unit, int maxPending) {
+        this.target = target;
+        this.quiet = quiet;
+        this.unit = unit;
+        this.maxPending = maxPending;
+    }
+
+    @NonNull
+    @Override
+    public SharedPreferences open(@NonNull Context context, @NonNull String name) {
+        BufferedSharedPreferences preferences = opened.get(name);
+        if (preferences == null) {
+            synchronized (opened) {
+                preferences = opened.get(name);
+                if (preferences == null) {
+                    preferences = new BufferedSharedPreferences(
+                            target.open(context, name), quiet, unit, maxPending);
+                    opened.put(name, preferences);
+                }
+            }
+        }
+        return preferences;
+    }
+}
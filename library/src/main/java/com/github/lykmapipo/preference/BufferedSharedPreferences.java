@@ -0,0 +1,285 @@
+package com.github.lykmapipo.preference;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind {@link SharedPreferences} which buffer changes in memory and
+ * write them to a target as a single commit.
+ * <p>
+ * Reads see changes immediately. Pending changes are merged per key and
+ * written once no change happened for a quiet period, once the number of
+ * pending keys reach a limit, or at the latest ten quiet periods after the
+ * first pending change. Changes of a failed write are kept pending and written
+ * again later. Both {@link Editor#commit()} and {@link Editor#apply()}
+ * return once changes are buffered; use {@link Preferences#flush()} to write
+ * them immediately.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see BufferedEngine
+ * @since 0.6.0
+ */
+public class BufferedSharedPreferences extends MemorySharedPreferences {
+    /**
+     * Number of quiet periods after which pending changes are written even
+     * when changes keep coming
+     *
+     * @since 0.6.0
+     */
+    private static final int MAX_QUIET_PERIODS = 10;
+
+    /**
+     * Minimum delay, in nanoseconds, before changes of a failed write are
+     * written again
+     *
+     * @since 0.6.0
+     */
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Single background thread shared by all buffers, used to schedule writes.
+     *
+     * @since 0.6.0
+     */
+    private static final ScheduledExecutorService scheduler = scheduler();
+
+    /**
+     * Completed result of buffered changes
+     *
+     * @since 0.6.0
+     */
+    private static final Future<Boolean> BUFFERED = buffered();
+
+    /**
+     * Quiet period, in nanoseconds, before pending changes are written
+     *
+     * @since 0.6.0
+     */
+    private final long quietNanos;
+
+    /**
+     * Number of pending keys which trigger an immediate write
+     *
+     * @since 0.6.0
+     */
+    private final int maxPending;
+
+    /**
+     * Pending changes, with null for removed keys
+     *
+     * @since 0.6.0
+     */
+    private final Map<String, Object> pending = new LinkedHashMap<String, Object>();
+
+    /**
+     * Flag whether target should be cleared before pending changes are written
+     *
+     * @since 0.6.0
+     */
+    private boolean pendingClear = false;
+
+    /**
+     * Time of first pending change, used to bound write latency
+     *
+     * @since 0.6.0
+     */
+    private long pendingSince = 0;
+
+    /**
+     * Scheduled write of pending changes
+     *
+     * @since 0.6.0
+     */
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * Serialize writes to the target, so they land in order
+     *
+     * @since 0.6.0
+     */
+    private final Object flushing = new Object();
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Create buffer loaded from and written behind to given target.
+     *
+     * @param target     persistent preferences
+     * @param quiet      quiet period before pending changes are written
+     * @param unit       unit of quiet period
+     * @param maxPending number of pending keys which trigger an immediate write
+     * @since 0.6.0
+     */
+    public BufferedSharedPreferences(@NonNull SharedPreferences target, long quiet,
+                                     @NonNull TimeUnit unit, int maxPending) {
+        super(target);
+        this.quietNanos = Math.max(0L, unit.toNanos(quiet));
+        this.maxPending = Math.max(1, maxPending);
+    }
+
+    @NonNull
+    @Override
+    Future<Boolean> persist(boolean clear, @NonNull Map<String, Object> changes) {
+        synchronized (pending) {
+            if (clear) {
+                pending.clear();
+                pendingClear = true;
+            }
+            pending.putAll(changes);
+            long now = System.nanoTime();
+            if (scheduled == null) {
+                pendingSince = now;
+            }
+            if (pending.size() >= maxPending) {
+                schedule(0L);
+            } else if (scheduled == null
+                    || now - pendingSince < quietNanos * (MAX_QUIET_PERIODS - 1)) {
+                // restart quiet period, unless pending changes waited too long
+                schedule(quietNanos);
+            }
+        }
+        return BUFFERED;
+    }
+
+    /**
+     * Write pending changes, then block until target persisted them.
+     *
+     * @return true if changes were persisted
+     * @since 0.6.0
+     */
+    @Override
+    boolean sync() {
+        return flush();
+    }
+
+    /**
+     * Write pending changes to the target in a single commit.
+     *
+     * @return true if pending changes were written
+     * @since 0.6.0
+     */
+    boolean flush() {
+        synchronized (flushing) {
+            Map<String, Object> changes;
+            boolean clear;
+            synchronized (pending) {
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                    scheduled = null;
+                }
+                changes = new LinkedHashMap<String, Object>(pending);
+                clear = pendingClear;
+                pending.clear();
+                pendingClear = false;
+            }
+            try {
+                SharedPreferences.Editor editor = target.edit();
+                if (clear) {
+                    editor.clear();
+                }
+                for (Map.Entry<String, Object> change : changes.entrySet()) {
+                    put(editor, change.getKey(), change.getValue());
+                }
+                // empty commit still wait for in-flight writes
+                if (editor.commit()) {
+                    return true;
+                }
+            } catch (Exception e) {
+                // retried below
+            }
+            retry(clear, changes);
+            return false;
+        }
+    }
+
+    /**
+     * Put changes of a failed write back in front of pending changes, keeping
+     * newer pending values, and schedule another write.
+     *
+     * @param clear   true if target should have been cleared first
+     * @param changes changes which were not written
+     * @since 0.6.0
+     */
+    private void retry(boolean clear, @NonNull Map<String, Object> changes) {
+        synchronized (pending) {
+            if (pendingClear) {
+                // failed changes were cleared since
+                return;
+            }
+            Map<String, Object> merged = new LinkedHashMap<String, Object>(changes);
+            merged.putAll(pending);
+            pending.clear();
+            pending.putAll(merged);
+            pendingClear = clear;
+            if (pending.isEmpty() && !pendingClear) {
+                return;
+            }
+            if (scheduled == null) {
+                pendingSince = System.nanoTime();
+                schedule(Math.max(quietNanos, RETRY_NANOS));
+            }
+        }
+    }
+
+    /**
+     * Obtain number of pending keys
+     *
+     * @since 0.6.0
+     */
+    int pending() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void schedule(long delayNanos) {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        scheduled = scheduler.schedule(flush, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    private static ScheduledExecutorService scheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "preferences-buffer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    @NonNull
+    private static Future<Boolean> buffered() {
+        FutureTask<Boolean> buffered = new FutureTask<Boolean>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return true;
+            }
+        });
+        buffered.run();
+        return buffered;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keys changed by a write, together with current values of all observed keys.
+ * <p>
+ * Emitted by multi-key and prefix observers once per write, so a screen
+ * depending on many keys update once per transaction.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public final class ChangeSet {
+    private final Set<String> keys;
+    private final Map<String, Object> values;
+
+    ChangeSet(@NonNull Set<String> keys, @NonNull Map<String, Object> values) {
+        this.keys = Collections.unmodifiableSet(keys);
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Obtain changed keys, including removed ones.
+     * <p>
+     * First emission of an observer list all observed keys with a value.
+     *
+     * @return changed keys
+     * @since 0.6.0
+     */
+    @NonNull
+    public Set<String> keys() {
+        return keys;
+    }
+
+    /**
+     * Check if given key changed.
+     *
+     * @param key preference key
+     * @return true if key changed
+     * @since 0.6.0
+     */
+    public boolean contains(@NonNull String key) {
+        return keys.contains(key);
+    }
+
+    /**
+     * Obtain current values of observed keys, without removed keys.
+     *
+     * @return values keyed by preference key
+     * @since 0.6.0
+     */
+    @NonNull
+    public Map<String, Object> values() {
+        return values;
+    }
+
+    /**
+     * Obtain current value of given observed key.
+     *
+     * @param key preference key
+     * @return current value, or null if key has no value
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public <T> T get(@NonNull String key) {
+        return (T) values.get(key);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{keys=" + keys + ", values=" + values + "}";
+    }
+}
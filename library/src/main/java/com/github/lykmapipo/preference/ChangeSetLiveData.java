@@ -0,0 +1,174 @@
+package com.github.lykmapipo.preference;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link LiveData} of {@link ChangeSet}s of a group of keys, or of all keys
+ * with a prefix, spanning one or more stores.
+ * <p>
+ * Changes are collected as they are dispatched and delivered as a single
+ * emission on the main thread, so all keys of a commit land in one emission.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class ChangeSetLiveData extends LiveData<ChangeSet> {
+    private static final Handler main = new Handler(Looper.getMainLooper());
+
+    /**
+     * Observed keys per store, or null when observing a prefix
+     *
+     * @since 0.6.0
+     */
+    private final Map<PreferenceStore, Collection<String>> keys;
+
+    /**
+     * Observed key prefix, or null when observing keys
+     *
+     * @since 0.6.0
+     */
+    private final String prefix;
+
+    /**
+     * Stores observed for a prefix
+     *
+     * @since 0.6.0
+     */
+    private final Collection<PreferenceStore> stores;
+
+    // collected changes
+    private final Set<String> changed = new LinkedHashSet<String>();
+    private boolean cleared = false;
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+
+    // keys of last delivered values, used to report keys removed by clear
+    private Set<String> delivered;
+
+    private final Runnable deliver = new Runnable() {
+        @Override
+        public void run() {
+            pending.set(false);
+            deliver();
+        }
+    };
+
+    private final Dispatcher.Subscriber subscriber = new Dispatcher.Subscriber() {
+        @Override
+        public void onChanged(@Nullable String key) {
+            if (key != null && prefix != null
+                    && (!key.startsWith(prefix) || PreferenceStore.isReserved(key))) {
+                return;
+            }
+            synchronized (changed) {
+                if (key == null) {
+                    cleared = true;
+                } else {
+                    changed.add(key);
+                }
+            }
+            if (pending.compareAndSet(false, true)) {
+                main.post(deliver);
+            }
+        }
+    };
+
+    /**
+     * Observe given keys of each store.
+     *
+     * @param keys observed keys per store
+     * @since 0.6.0
+     */
+    ChangeSetLiveData(@NonNull Map<PreferenceStore, Collection<String>> keys) {
+        this.keys = keys;
+        this.prefix = null;
+        this.stores = keys.keySet();
+    }
+
+    /**
+     * Observe all keys with given prefix in given stores.
+     *
+     * @param prefix observed key prefix
+     * @param stores observed stores
+     * @since 0.6.0
+     */
+    ChangeSetLiveData(@NonNull String prefix, @NonNull Collection<PreferenceStore> stores) {
+        this.keys = null;
+        this.prefix = prefix;
+        this.stores = stores;
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        for (PreferenceStore store : stores) {
+            if (keys != null) {
+                for (String key : keys.get(store)) {
+                    store.dispatcher().subscribe(key, subscriber);
+                }
+            } else {
+                store.dispatcher().subscribe(subscriber);
+            }
+        }
+        // first emission list all current values
+        synchronized (changed) {
+            cleared = true;
+        }
+        if (pending.compareAndSet(false, true)) {
+            main.post(deliver);
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        super.onInactive();
+        for (PreferenceStore store : stores) {
+            if (keys != null) {
+                for (String key : keys.get(store)) {
+                    store.dispatcher().unsubscribe(key, subscriber);
+                }
+            } else {
+                store.dispatcher().unsubscribe(subscriber);
+            }
+        }
+    }
+
+    @MainThread
+    private void deliver() {
+        Set<String> changedKeys;
+        boolean all;
+        synchronized (changed) {
+            changedKeys = new LinkedHashSet<String>(changed);
+            all = cleared;
+            changed.clear();
+            cleared = false;
+        }
+        Map<String, Object> values = new HashMap<String, Object>();
+        for (PreferenceStore store : stores) {
+            values.putAll(keys != null ? store.values(keys.get(store)) : store.values(prefix));
+        }
+        if (all) {
+            if (delivered != null) {
+                changedKeys.addAll(delivered);
+            }
+            changedKeys.addAll(values.keySet());
+        }
+        delivered = values.keySet();
+        if (!changedKeys.isEmpty() || getValue() == null) {
+            setValue(new ChangeSet(changedKeys, values));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Encode and decode values of a type to and from their stored {@link String} form.
+ * <p>
+ * Register codecs with {@link Preferences#codec(Class, Codec)}. Values of types
+ * without a codec are stored as json.
+ *
+ * @param <T> value type
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see BinaryCodec
+ * @since 0.6.0
+ */
+public interface Codec<T> {
+    /**
+     * Encode given value.
+     *
+     * @param value value to encode
+     * @return encoded value
+     * @throws Exception if value can not be encoded
+     * @since 0.6.0
+     */
+    @NonNull
+    String encode(@NonNull T value) throws Exception;
+
+    /**
+     * Decode given stored value.
+     * <p>
+     * Throw when given value was not encoded by this codec, so values stored
+     * before the codec was registered are decoded as json.
+     *
+     * @param raw stored value
+     * @return decoded value
+     * @throws Exception if value can not be decoded
+     * @since 0.6.0
+     */
+    @Nullable
+    T decode(@NonNull String raw) throws Exception;
+}
@@ -0,0 +1,97 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.github.lykmapipo.common.Common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of {@link Codec} per value type, falling back to json for
+ * types without a codec.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class Codecs {
+    /**
+     * Registered codecs keyed by value type
+     *
+     * @since 0.6.0
+     */
+    private static final ConcurrentMap<Class<?>, Codec<?>> codecs =
+            new ConcurrentHashMap<Class<?>, Codec<?>>();
+
+    private Codecs() {
+    }
+
+    /**
+     * Register codec of given type.
+     *
+     * @param type  value type
+     * @param codec value codec
+     * @since 0.6.0
+     */
+    static <T> void register(@NonNull Class<T> type, @NonNull Codec<T> codec) {
+        codecs.put(type, codec);
+    }
+
+    /**
+     * Drop all registered codecs, so all values are stored as json.
+     *
+     * @since 0.6.0
+     */
+    static void unregisterAll() {
+        codecs.clear();
+    }
+
+    /**
+     * Encode given value with codec of its type, or as json.
+     *
+     * @param value value to encode
+     * @return encoded value
+     * @throws Exception if value can not be encoded
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    static <T> String encode(@NonNull T value) throws Exception {
+        Codec<T> codec = codecs.isEmpty() ? null : (Codec<T>) codecs.get(value.getClass());
+        if (codec != null) {
+            return codec.encode(value);
+        }
+        return Common.Value.toJson(value);
+    }
+
+    /**
+     * Decode given stored value with codec of given type, or as json.
+     * <p>
+     * A value the codec fail to decode is reported to {@link Metrics#current},
+     * then decoded as json, since it may have been stored before the codec
+     * was registered.
+     *
+     * @param raw  stored value
+     * @param type value type
+     * @return decoded value
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    static <T> T decode(@NonNull String raw, @NonNull Class<T> type) {
+        Codec<T> codec = codecs.isEmpty() ? null : (Codec<T>) codecs.get(type);
+        if (codec != null) {
+            try {
+                return codec.decode(raw);
+            } catch (Exception e) {
+                Metrics metrics = Metrics.current;
+                if (metrics != null) {
+                    metrics.onError("", null, e);
+                }
+            }
+        }
+        return Common.Value.fromJson(raw, type);
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.lykmapipo.preference;
+
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression of stored string values, selected per key or by size.
+ * <p>
+ * Compressed values are stored as Base64 prefixed by {@link #MARKER}, so
+ * values stored uncompressed are still read as is.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class Compression {
+    /**
+     * Leading character of compressed values
+     *
+     * @since 0.6.0
+     */
+    static final char MARKER = '\u0002';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Length above which values are compressed, or zero when disabled
+     *
+     * @since 0.6.0
+     */
+    private volatile int threshold = 0;
+
+    /**
+     * Keys whose values are always compressed
+     *
+     * @since 0.6.0
+     */
+    private final Set<String> keys =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Change length above which values are compressed.
+     *
+     * @param threshold value length, or zero to disable size based compression
+     * @since 0.6.0
+     */
+    void threshold(int threshold) {
+        this.threshold = Math.max(0, threshold);
+    }
+
+    /**
+     * Always compress values of given keys.
+     *
+     * @param keys preference keys
+     * @since 0.6.0
+     */
+    void register(@NonNull String... keys) {
+        Collections.addAll(this.keys, keys);
+    }
+
+    /**
+     * Compress given value if selected and smaller once compressed.
+     *
+     * @param key preference key
+     * @param raw value to store
+     * @return compressed value, or given value
+     * @since 0.6.0
+     */
+    @NonNull
+    String compress(@NonNull String key, @NonNull String raw) {
+        int limit = threshold;
+        boolean selected = (limit > 0 && raw.length() > limit)
+                || (!keys.isEmpty() && keys.contains(key));
+        if (!selected) {
+            return raw;
+        }
+        byte[] bytes = raw.getBytes(UTF_8);
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+            String compressed = MARKER + Base64.encodeToString(output.toByteArray(), Base64.NO_WRAP);
+            return compressed.length() < raw.length() ? compressed : raw;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Check if given stored value is compressed.
+     *
+     * @param raw stored value
+     * @return true if value is compressed
+     * @since 0.6.0
+     */
+    static boolean isCompressed(@Nullable String raw) {
+        return raw != null && raw.length() > 0 && raw.charAt(0) == MARKER;
+    }
+
+    /**
+     * Decompress given stored value.
+     *
+     * @param raw compressed value
+     * @return original value
+     * @throws IOException if value is not a valid compressed value
+     * @since 0.6.0
+     */
+    @NonNull
+    static String decompress(@NonNull String raw) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Base64.decode(raw.substring(1), Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid compressed value", e);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed value");
+                }
+                output.write(buffer, 0, length);
+            }
+            return new String(output.toByteArray(), UTF_8);
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.lykmapipo.preference;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Single {@link SharedPreferences.OnSharedPreferenceChangeListener} of a store,
+ * which dispatch each change only to subscribers of the changed key.
+ * <p>
+ * A change cost is proportional to number of subscribers of the changed key,
+ * not to number of all subscribers.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class Dispatcher implements SharedPreferences.OnSharedPreferenceChangeListener {
+    /**
+     * Subscribers indexed by preference key
+     *
+     * @since 0.6.0
+     */
+    private final ConcurrentMap<String, Set<Subscriber>> subscribers =
+            new ConcurrentHashMap<String, Set<Subscriber>>();
+
+    /**
+     * Subscribers of all keys
+     *
+     * @since 0.6.0
+     */
+    private final Set<Subscriber> wildcards = new CopyOnWriteArraySet<Subscriber>();
+
+    /**
+     * Guard subscriber sets of keys, so a set is never dropped while a
+     * subscriber is being added to it. Dispatch read sets without locking.
+     *
+     * @since 0.6.0
+     */
+    private final Object subscribing = new Object();
+
+    /**
+     * Name of the dispatching store, reported to {@link Metrics}
+     *
+     * @since 0.6.0
+     */
+    private final String name;
+
+    Dispatcher() {
+        this("");
+    }
+
+    Dispatcher(@NonNull String name) {
+        this.name = name;
+    }
+
+    /**
+     * Subscribe for changes of given key.
+     *
+     * @param key        preference key
+     * @param subscriber change subscriber
+     * @since 0.6.0
+     */
+    void subscribe(@NonNull String key, @NonNull Subscriber subscriber) {
+        synchronized (subscribing) {
+            Set<Subscriber> keySubscribers = subscribers.get(key);
+            if (keySubscribers == null) {
+                keySubscribers = new CopyOnWriteArraySet<Subscriber>();
+                subscribers.put(key, keySubscribers);
+            }
+            keySubscribers.add(subscriber);
+        }
+    }
+
+    /**
+     * Unsubscribe from changes of given key.
+     *
+     * @param key        preference key
+     * @param subscriber change subscriber
+     * @since 0.6.0
+     */
+    void unsubscribe(@NonNull String key, @NonNull Subscriber subscriber) {
+        synchronized (subscribing) {
+            Set<Subscriber> keySubscribers = subscribers.get(key);
+            if (keySubscribers != null) {
+                keySubscribers.remove(subscriber);
+                if (keySubscribers.isEmpty()) {
+                    subscribers.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Subscribe for changes of all keys.
+     *
+     * @param subscriber change subscriber
+     * @since 0.6.0
+     */
+    void subscribe(@NonNull Subscriber subscriber) {
+        wildcards.add(subscriber);
+    }
+
+    /**
+     * Unsubscribe from changes of all keys.
+     *
+     * @param subscriber change subscriber
+     * @since 0.6.0
+     */
+    void unsubscribe(@NonNull Subscriber subscriber) {
+        wildcards.remove(subscriber);
+    }
+
+    /**
+     * Notify subscribers that given key changed.
+     *
+     * @param key changed preference key, or null if all keys were cleared
+     * @return number of notified subscribers
+     * @since 0.6.0
+     */
+    int dispatch(@Nullable String key) {
+        int notified = 0;
+        for (Subscriber subscriber : wildcards) {
+            subscriber.onChanged(key);
+            notified++;
+        }
+        if (key == null) {
+            for (Set<Subscriber> keySubscribers : subscribers.values()) {
+                for (Subscriber subscriber : keySubscribers) {
+                    subscriber.onChanged(null);
+                    notified++;
+                }
+            }
+            return notified;
+        }
+        Set<Subscriber> keySubscribers = subscribers.get(key);
+        if (keySubscribers != null) {
+            for (Subscriber subscriber : keySubscribers) {
+                subscriber.onChanged(key);
+                notified++;
+            }
+        }
+        return notified;
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        int notified = dispatch(key);
+        Metrics metrics = Metrics.current;
+        if (metrics != null) {
+            metrics.onDispatch(name, key, notified);
+        }
+    }
+
+    /**
+     * Receiver of preference key changes
+     *
+     * @since 0.6.0
+     */
+    interface Subscriber {
+        /**
+         * Called when subscribed key changed.
+         *
+         * @param key changed preference key, or null if all keys were cleared
+         * @since 0.6.0
+         */
+        void onChanged(@Nullable String key);
+    }
+}
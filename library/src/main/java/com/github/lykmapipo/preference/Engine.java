@@ -0,0 +1,32 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Storage engine which open named {@link SharedPreferences} backing a {@link PreferenceStore}.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see XmlEngine
+ * @see LogEngine
+ * @see MemoryEngine
+ * @see BufferedEngine
+ * @since 0.6.0
+ */
+public interface Engine {
+    /**
+     * Open named {@link SharedPreferences}.
+     * <p>
+     * Opening same name more than once must return the same instance.
+     *
+     * @param context application {@link Context}
+     * @param name    store name
+     * @return opened {@link SharedPreferences}
+     * @since 0.6.0
+     */
+    @NonNull
+    SharedPreferences open(@NonNull Context context, @NonNull String name);
+}
@@ -0,0 +1,156 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Expiry times of values written with a time to live.
+ * <p>
+ * Each expiring value has a companion key, under {@link #PREFIX}, holding
+ * its expiry time. Writing the key without a time to live remove the
+ * companion key in the same commit.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class Expiries {
+    /**
+     * Prefix of companion keys holding expiry times
+     *
+     * @since 0.6.0
+     */
+    static final String PREFIX = "preferences.expires.";
+
+    /**
+     * Key set once a value with a time to live is written, so stores which
+     * never wrote one skip scanning for companion keys
+     *
+     * @since 0.6.0
+     */
+    static final String FLAG = "preferences.expiring";
+
+    /**
+     * Expiry entries keyed by preference key
+     *
+     * @since 0.6.0
+     */
+    private final Map<String, Long> entries = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Flag whether entries were loaded from companion keys
+     *
+     * @since 0.6.0
+     */
+    private volatile boolean loaded = false;
+
+    /**
+     * Obtain companion key of given key.
+     *
+     * @param key preference key
+     * @return companion key
+     * @since 0.6.0
+     */
+    @NonNull
+    static String companion(@NonNull String key) {
+        return PREFIX + key;
+    }
+
+    /**
+     * Encode companion value of given expiry time.
+     *
+     * @param expiresAt expiry time, in milliseconds since epoch
+     * @return companion value
+     * @since 0.6.0
+     */
+    @NonNull
+    static String encode(long expiresAt) {
+        return String.valueOf(expiresAt);
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Mark entries as loaded.
+     *
+     * @since 0.6.0
+     */
+    void loaded() {
+        loaded = true;
+    }
+
+    /**
+     * Restore entry from given companion key and value.
+     *
+     * @param companion companion key
+     * @param encoded   companion value
+     * @since 0.6.0
+     */
+    void restore(@NonNull String companion, @Nullable String encoded) {
+        if (!companion.startsWith(PREFIX) || encoded == null) {
+            return;
+        }
+        try {
+            long expiresAt = Long.parseLong(encoded);
+            String key = companion.substring(PREFIX.length());
+            if (!entries.containsKey(key)) {
+                entries.put(key, expiresAt);
+            }
+        } catch (NumberFormatException e) {
+            // not a companion value
+        }
+    }
+
+    /**
+     * Record expiry of given key.
+     *
+     * @param key       preference key
+     * @param expiresAt expiry time, in milliseconds since epoch
+     * @since 0.6.0
+     */
+    void put(@NonNull String key, long expiresAt) {
+        entries.put(key, expiresAt);
+    }
+
+    void remove(@NonNull String key) {
+        entries.remove(key);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Check if value of given key expired.
+     *
+     * @param key preference key
+     * @return true if value was written with a time to live which elapsed
+     * @since 0.6.0
+     */
+    boolean isExpired(@NonNull String key) {
+        if (entries.isEmpty()) {
+            return false;
+        }
+        Long expiresAt = entries.get(key);
+        return expiresAt != null && expiresAt <= System.currentTimeMillis();
+    }
+
+    /**
+     * Obtain keys with an expiry entry.
+     *
+     * @since 0.6.0
+     */
+    @NonNull
+    Iterable<String> keys() {
+        return entries.keySet();
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.lykmapipo.preference;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sorted index of keys of a store, used by prefix scans.
+ * <p>
+ * Loaded on first use, then kept up to date with keys written through the
+ * store and keys reported changed by {@link SharedPreferences}. A query cost
+ * is proportional to matched keys, not to number of keys in the store.
+ * Reserved keys are never indexed, so scans do not expose them.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class KeyIndex {
+    /**
+     * Sorted keys
+     *
+     * @since 0.6.0
+     */
+    private final ConcurrentSkipListSet<String> keys = new ConcurrentSkipListSet<String>();
+
+    /**
+     * Flag whether keys reflect the store
+     *
+     * @since 0.6.0
+     */
+    private volatile boolean loaded = false;
+
+    /**
+     * Check if index was loaded.
+     *
+     * @return true if index is in use
+     * @since 0.6.0
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Load all keys of given preferences.
+     * <p>
+     * Callers must block writes to the store while loading.
+     *
+     * @param preferences indexed preferences
+     * @since 0.6.0
+     */
+    synchronized void load(@NonNull SharedPreferences preferences) {
+        keys.clear();
+        for (String key : preferences.getAll().keySet()) {
+            if (key != null && !PreferenceStore.isReserved(key)) {
+                keys.add(key);
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Drop all keys, so index is loaded again on next use.
+     *
+     * @since 0.6.0
+     */
+    synchronized void reset() {
+        loaded = false;
+        keys.clear();
+    }
+
+    /**
+     * Add or remove given keys depending on whether preferences still
+     * contain them.
+     *
+     * @param preferences indexed preferences
+     * @param changed     changed keys
+     * @since 0.6.0
+     */
+    void update(@NonNull SharedPreferences preferences, @NonNull Collection<String> changed) {
+        if (!loaded) {
+            return;
+        }
+        for (String key : changed) {
+            update(preferences, key);
+        }
+    }
+
+    /**
+     * Add or remove given key depending on whether preferences still
+     * contain it.
+     *
+     * @param preferences indexed preferences
+     * @param changed     changed key
+     * @since 0.6.0
+     */
+    void update(@NonNull SharedPreferences preferences, @NonNull String changed) {
+        if (!loaded || PreferenceStore.isReserved(changed)) {
+            return;
+        }
+        if (preferences.contains(changed)) {
+            keys.add(changed);
+        } else {
+            keys.remove(changed);
+        }
+    }
+
+    /**
+     * Obtain keys starting with given prefix, in ascending order.
+     *
+     * @param prefix key prefix
+     * @return matched keys
+     * @since 0.6.0
+     */
+    @NonNull
+    List<String> keys(@NonNull String prefix) {
+        List<String> matched = new ArrayList<String>();
+        for (String key : keys.tailSet(prefix)) {
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            matched.add(key);
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks striped by preference key, used to coordinate writes
+ * without a single store wide lock.
+ * <p>
+ * Multiple stripes are always acquired in ascending order, so concurrent
+ * multi key writes can not deadlock.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class Locks {
+    /**
+     * Available lock stripes
+     *
+     * @since 0.6.0
+     */
+    private final ReentrantLock[] stripes;
+
+    Locks(int size) {
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Acquire lock guarding given key.
+     *
+     * @param key preference key
+     * @since 0.6.0
+     */
+    void lock(@NonNull String key) {
+        stripes[indexOf(key)].lock();
+    }
+
+    /**
+     * Release lock guarding given key.
+     *
+     * @param key preference key
+     * @since 0.6.0
+     */
+    void unlock(@NonNull String key) {
+        stripes[indexOf(key)].unlock();
+    }
+
+    /**
+     * Acquire locks guarding all given keys.
+     *
+     * @param keys preference keys
+     * @return acquired stripes, to be passed to {@link #unlock(int[])}
+     * @since 0.6.0
+     */
+    @NonNull
+    int[] lock(@NonNull Collection<String> keys) {
+        int[] held = new int[keys.size()];
+        int count = 0;
+        for (String key : keys) {
+            held[count++] = indexOf(key);
+        }
+        Arrays.sort(held);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || held[unique - 1] != held[i]) {
+                held[unique++] = held[i];
+            }
+        }
+        held = Arrays.copyOf(held, unique);
+        for (int index : held) {
+            stripes[index].lock();
+        }
+        return held;
+    }
+
+    /**
+     * Acquire all locks.
+     *
+     * @return acquired stripes, to be passed to {@link #unlock(int[])}
+     * @since 0.6.0
+     */
+    @NonNull
+    int[] lockAll() {
+        int[] held = new int[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i].lock();
+            held[i] = i;
+        }
+        return held;
+    }
+
+    /**
+     * Release previous acquired stripes.
+     *
+     * @param held stripes returned by lock methods
+     * @since 0.6.0
+     */
+    void unlock(@NonNull int[] held) {
+        for (int i = held.length - 1; i >= 0; i--) {
+            stripes[held[i]].unlock();
+        }
+    }
+
+    private int indexOf(@NonNull String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % stripes.length;
+    }
+}
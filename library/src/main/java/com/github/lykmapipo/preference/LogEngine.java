@@ -0,0 +1,54 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link Engine} backed by append-only {@link LogSharedPreferences} files.
+ * <p>
+ * Each commit append only changed values, so write cost does not grow with store size.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public class LogEngine implements Engine {
+    /**
+     * Name of the directory, under application files directory, which hold log files.
+     *
+     * @since 0.6.0
+     */
+    static final String DIRECTORY = "preferences";
+
+    /**
+     * Opened logs keyed by file path, so each file is opened once per process.
+     *
+     * @since 0.6.0
+     */
+    private static final ConcurrentMap<String, LogSharedPreferences> opened =
+            new ConcurrentHashMap<String, LogSharedPreferences>();
+
+    @NonNull
+    @Override
+    public SharedPreferences open(@NonNull Context context, @NonNull String name) {
+        File file = new File(new File(context.getFilesDir(), DIRECTORY), name + ".log");
+        String path = file.getAbsolutePath();
+        LogSharedPreferences preferences = opened.get(path);
+        if (preferences == null) {
+            synchronized (opened) {
+                preferences = opened.get(path);
+                if (preferences == null) {
+                    preferences = new LogSharedPreferences(file);
+                    opened.put(path, preferences);
+                }
+            }
+        }
+        return preferences;
+    }
+}
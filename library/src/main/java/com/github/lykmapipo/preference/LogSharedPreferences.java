@@ -0,0 +1,633 @@
+package com.github.lykmapipo.preference;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+/**
+ * {@link SharedPreferences} persisted as an append-only log of checksummed records.
+ * <p>
+ * Each commit append a single record holding only changed values, instead of
+ * rewriting all values. Once most records are superseded, the log is compacted
+ * in background into a single snapshot record, written to a temporary file and
+ * atomically renamed over the log.
+ * <p>
+ * On open, the log is memory mapped and replayed. Replay stop at the first
+ * record with invalid length or checksum, and the torn tail left by a crash
+ * is truncated, so a commit is either fully recovered or not at all.
+ * <p>
+ * Values are held and read in memory by {@link MemorySharedPreferences}, while
+ * compaction use values as applied by appended records.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public class LogSharedPreferences extends MemorySharedPreferences {
+    /**
+     * Log file magic number
+     *
+     * @since 0.6.0
+     */
+    private static final int MAGIC = 0x50524546;
+
+    /**
+     * Log format version
+     *
+     * @since 0.6.0
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of log file header
+     *
+     * @since 0.6.0
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Size of record header, holding payload length and checksum
+     *
+     * @since 0.6.0
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * Minimum number of records before a log is compacted
+     *
+     * @since 0.6.0
+     */
+    static final int COMPACT_MIN_RECORDS = 1024;
+
+    /**
+     * Ratio of records to live values above which a log is compacted
+     *
+     * @since 0.6.0
+     */
+    static final int COMPACT_RATIO = 2;
+
+    // record operations
+    private static final byte OP_CLEAR = 0;
+    private static final byte OP_REMOVE = 1;
+    private static final byte OP_STRING = 2;
+    private static final byte OP_STRING_SET = 3;
+    private static final byte OP_INT = 4;
+    private static final byte OP_LONG = 5;
+    private static final byte OP_FLOAT = 6;
+    private static final byte OP_BOOLEAN = 7;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Single background thread shared by all logs, used to append records
+     * and compact logs in order.
+     *
+     * @since 0.6.0
+     */
+    private static final ExecutorService disk = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "preferences-log");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Log file
+     *
+     * @since 0.6.0
+     */
+    private final File file;
+
+    /**
+     * Open channel to the log file, only used from disk thread after open
+     *
+     * @since 0.6.0
+     */
+    private FileChannel channel;
+
+    /**
+     * Number of records in the log file, only used from disk thread after open
+     *
+     * @since 0.6.0
+     */
+    private int records = 0;
+
+    /**
+     * Size of valid records in the log file, only used from disk thread after open
+     *
+     * @since 0.6.0
+     */
+    private long end = 0;
+
+    /**
+     * Values as written to the log file, only used from disk thread after
+     * open, so compaction never snapshot values ahead of their records
+     *
+     * @since 0.6.0
+     */
+    private final Map<String, Object> state = new HashMap<String, Object>();
+
+    /**
+     * Flag whether a compaction is queued, only used from disk thread
+     *
+     * @since 0.6.0
+     */
+    private boolean compacting = false;
+
+    /**
+     * Open or create log at given file, replaying all valid records.
+     *
+     * @param file log file
+     * @since 0.6.0
+     */
+    public LogSharedPreferences(@NonNull File file) {
+        this.file = file;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open preference log " + file, e);
+        }
+    }
+
+    /**
+     * Obtain current size of the log file
+     *
+     * @return log file size in bytes
+     * @since 0.6.0
+     */
+    long size() {
+        return file.length();
+    }
+
+    /**
+     * Open log file and replay its records.
+     *
+     * @throws IOException if log file can not be opened
+     * @since 0.6.0
+     */
+    private void open() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        long size = channel.size();
+        long valid = 0;
+        if (size >= HEADER_SIZE) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() == MAGIC && buffer.getInt() == VERSION) {
+                valid = HEADER_SIZE;
+                while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (length < 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    buffer.get(payload);
+                    if (checksum(payload) != checksum || !replay(payload)) {
+                        break;
+                    }
+                    valid = buffer.position();
+                    records++;
+                }
+            }
+        }
+        if (valid == 0) {
+            // new or unreadable log
+            state.clear();
+            records = 0;
+            channel.truncate(0);
+            channel.write(header(), 0);
+            channel.force(true);
+            valid = HEADER_SIZE;
+        } else if (valid < size) {
+            // drop torn tail
+            channel.truncate(valid);
+            channel.force(true);
+        }
+        channel.position(valid);
+        end = valid;
+        values.putAll(state);
+    }
+
+    /**
+     * Apply operations of a valid record to logged values.
+     *
+     * @param payload record payload
+     * @return true if record was fully applied
+     * @since 0.6.0
+     */
+    private boolean replay(@NonNull byte[] payload) {
+        Map<String, Object> changes = new LinkedHashMap<String, Object>();
+        boolean clear = false;
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                byte op = input.readByte();
+                if (op == OP_CLEAR) {
+                    clear = true;
+                    changes.clear();
+                    continue;
+                }
+                String key = readString(input);
+                changes.put(key, readValue(op, input));
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        apply(clear, changes);
+        return true;
+    }
+
+    /**
+     * Apply changes of an appended record to logged values.
+     * <p>
+     * Only called from disk thread after open.
+     *
+     * @param clear   true if all values were removed first
+     * @param changes changed values, with null for removed ones
+     * @since 0.6.0
+     */
+    private void apply(boolean clear, @NonNull Map<String, Object> changes) {
+        if (clear) {
+            state.clear();
+        }
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                state.remove(change.getKey());
+            } else {
+                state.put(change.getKey(), change.getValue());
+            }
+        }
+    }
+
+    /**
+     * Queue record of changes already applied to memory for append.
+     *
+     * @param clear   true if all values were removed first
+     * @param changes changed values, with null for removed ones
+     * @return {@link Future} of append result
+     * @since 0.6.0
+     */
+    @NonNull
+    @Override
+    Future<Boolean> persist(final boolean clear, @NonNull Map<String, Object> changes) {
+        final byte[] payload = encode(clear, changes);
+        final Map<String, Object> appended = new LinkedHashMap<String, Object>(changes);
+        return disk.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                if (!append(payload)) {
+                    return false;
+                }
+                apply(clear, appended);
+                compactIfSuperseded();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Block until all queued records are appended.
+     *
+     * @return true if queued records were appended
+     * @since 0.6.0
+     */
+    @Override
+    boolean sync() {
+        try {
+            return disk.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return true;
+                }
+            }).get();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Append a record to the log.
+     * <p>
+     * Only called from disk thread.
+     *
+     * @param payload record payload
+     * @return true if record was appended
+     * @since 0.6.0
+     */
+    private boolean append(@NonNull byte[] payload) {
+        try {
+            FileChannel target = channel();
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+            record.putInt(payload.length).putInt(checksum(payload)).put(payload);
+            record.flip();
+            while (record.hasRemaining()) {
+                target.write(record);
+            }
+            target.force(false);
+            records++;
+            end = target.position();
+            return true;
+        } catch (IOException e) {
+            rewind();
+            return false;
+        }
+    }
+
+    /**
+     * Drop bytes of a partially appended record, so later records are not
+     * written after it and lost on replay.
+     * <p>
+     * Only called from disk thread.
+     *
+     * @since 0.6.0
+     */
+    private void rewind() {
+        try {
+            if (channel.isOpen()) {
+                channel.truncate(end);
+                channel.position(end);
+            }
+        } catch (IOException e) {
+            // reopened, and torn tail truncated, on next append
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Obtain open channel to the log file, reopening it after a failed
+     * append or compaction.
+     * <p>
+     * Only called from disk thread.
+     *
+     * @return open channel positioned at end of the log
+     * @throws IOException if log file can not be opened
+     * @since 0.6.0
+     */
+    @NonNull
+    private FileChannel channel() throws IOException {
+        if (!channel.isOpen()) {
+            FileChannel reopened = new RandomAccessFile(file, "rw").getChannel();
+            try {
+                reopened.truncate(end);
+                reopened.position(end);
+            } catch (IOException e) {
+                reopened.close();
+                throw e;
+            }
+            channel = reopened;
+        }
+        return channel;
+    }
+
+    private void closeQuietly() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // already unusable
+        }
+    }
+
+    /**
+     * Queue a single compaction when most records are superseded.
+     * <p>
+     * Only called from disk thread.
+     *
+     * @since 0.6.0
+     */
+    private void compactIfSuperseded() {
+        if (compacting || !isSuperseded()) {
+            return;
+        }
+        compacting = true;
+        disk.submit(new Runnable() {
+            @Override
+            public void run() {
+                compacting = false;
+                // records appended since may have been compacted already
+                if (isSuperseded()) {
+                    compact();
+                }
+            }
+        });
+    }
+
+    /**
+     * Check if most records are superseded.
+     * <p>
+     * Only called from disk thread.
+     *
+     * @since 0.6.0
+     */
+    private boolean isSuperseded() {
+        return records >= COMPACT_MIN_RECORDS && records > state.size() * COMPACT_RATIO;
+    }
+
+    /**
+     * Rewrite log as a single snapshot record of logged values.
+     * <p>
+     * Only called from disk thread, so the snapshot hold exactly the records
+     * appended before it.
+     *
+     * @return true if log was compacted
+     * @since 0.6.0
+     */
+    boolean compact() {
+        File compacted = new File(file.getPath() + ".tmp");
+        try {
+            byte[] payload = encode(true, state);
+            FileChannel target = new RandomAccessFile(compacted, "rw").getChannel();
+            try {
+                target.truncate(0);
+                ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + RECORD_HEADER_SIZE + payload.length);
+                record.putInt(MAGIC).putInt(VERSION);
+                record.putInt(payload.length).putInt(checksum(payload)).put(payload);
+                record.flip();
+                while (record.hasRemaining()) {
+                    target.write(record);
+                }
+                target.force(true);
+            } finally {
+                target.close();
+            }
+            if (!compacted.renameTo(file)) {
+                return false;
+            }
+            records = 1;
+            end = HEADER_SIZE + RECORD_HEADER_SIZE + payload.length;
+            closeQuietly();
+            // reopened by next append if this fails
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            channel.position(end);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Wait for all queued records to be appended, then compact the log.
+     *
+     * @return true if log was compacted
+     * @since 0.6.0
+     */
+    boolean compactNow() {
+        try {
+            return disk.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return compact();
+                }
+            }).get();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @NonNull
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        return header;
+    }
+
+    private static int checksum(@NonNull byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    @NonNull
+    private static byte[] encode(boolean clear, @NonNull Map<String, Object> changes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(changes.size() + (clear ? 1 : 0));
+            if (clear) {
+                output.writeByte(OP_CLEAR);
+            }
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                writeValue(output, change.getKey(), change.getValue());
+            }
+            output.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // in-memory streams never fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(@NonNull DataOutputStream output, @NonNull String key,
+                                   @Nullable Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(OP_REMOVE);
+            writeString(output, key);
+        } else if (value instanceof String) {
+            output.writeByte(OP_STRING);
+            writeString(output, key);
+            writeString(output, (String) value);
+        } else if (value instanceof Set) {
+            Set<String> set = (Set<String>) value;
+            output.writeByte(OP_STRING_SET);
+            writeString(output, key);
+            output.writeInt(set.size());
+            for (String element : set) {
+                writeString(output, element);
+            }
+        } else if (value instanceof Integer) {
+            output.writeByte(OP_INT);
+            writeString(output, key);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(OP_LONG);
+            writeString(output, key);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(OP_FLOAT);
+            writeString(output, key);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(OP_BOOLEAN);
+            writeString(output, key);
+            output.writeBoolean((Boolean) value);
+        } else {
+            throw new IllegalArgumentException("Unsupported value type " + value.getClass());
+        }
+    }
+
+    @Nullable
+    private static Object readValue(byte op, @NonNull DataInputStream input) throws IOException {
+        switch (op) {
+            case OP_REMOVE:
+                return null;
+            case OP_STRING:
+                return readString(input);
+            case OP_STRING_SET:
+                int size = input.readInt();
+                Set<String> set = new HashSet<String>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    set.add(readString(input));
+                }
+                return Collections.unmodifiableSet(set);
+            case OP_INT:
+                return input.readInt();
+            case OP_LONG:
+                return input.readLong();
+            case OP_FLOAT:
+                return input.readFloat();
+            case OP_BOOLEAN:
+                return input.readBoolean();
+            default:
+                throw new IOException("Unknown record operation " + op);
+        }
+    }
+
+    private static void writeString(@NonNull DataOutputStream output, @NonNull String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link Engine} backed by {@link MemorySharedPreferences}.
+ * <p>
+ * Without a target engine values live only as long as this engine, which
+ * suits session scoped data and tests. With a target engine values are
+ * loaded from and written through to stores opened by the target.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public class MemoryEngine implements Engine {
+    /**
+     * Opened stores keyed by name
+     *
+     * @since 0.6.0
+     */
+    private final ConcurrentMap<String, MemorySharedPreferences> opened =
+            new ConcurrentHashMap<String, MemorySharedPreferences>();
+
+    /**
+     * Write-through target engine, or null for memory only stores
+     *
+     * @since 0.6.0
+     */
+    private final Engine target;
+
+    /**
+     * Create engine of memory only stores.
+     *
+     * @since 0.6.0
+     */
+    public MemoryEngine() {
+        this(null);
+    }
+
+    /**
+     * Create engine of memory stores written through to stores of given engine.
+     *
+     * @param target persistent storage engine, or null for memory only stores
+     * @since 0.6.0
+     */
+    public MemoryEngine(@Nullable Engine target) {
+        this.target = target;
+    }
+
+    @NonNull
+    @Override
+    public SharedPreferences open(@NonNull Context context, @NonNull String name) {
+        MemorySharedPreferences preferences = opened.get(name);
+        if (preferences == null) {
+            synchronized (opened) {
+                preferences = opened.get(name);
+                if (preferences == null) {
+                    preferences = target == null ? new MemorySharedPreferences()
+                            : new MemorySharedPreferences(target.open(context, name));
+                    opened.put(name, preferences);
+                }
+            }
+        }
+        return preferences;
+    }
+}
@@ -0,0 +1,390 @@
+package com.github.lykmapipo.preference;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Concurrent in-memory {@link SharedPreferences}.
+ * <p>
+ * Reads never lock, and each commit is applied atomically with respect to
+ * other commits. Listeners are weakly referenced and notified on the main
+ * thread, like platform {@link SharedPreferences}.
+ * <p>
+ * When created with a target, values are loaded from the target and every
+ * change is written through to it: {@link Editor#apply()} never blocks on
+ * the target, while {@link Editor#commit()} returns once the target persisted
+ * the change. Changes made directly to the target afterwards are not seen.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see MemoryEngine
+ * @since 0.6.0
+ */
+public class MemorySharedPreferences implements SharedPreferences {
+    /**
+     * Main thread {@link Handler} used to notify listeners.
+     *
+     * @since 0.6.0
+     */
+    private static final Handler main = new Handler(Looper.getMainLooper());
+
+    /**
+     * Current values, read without locking
+     *
+     * @since 0.6.0
+     */
+    final Map<String, Object> values = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * Registered listeners, weakly referenced like platform {@link SharedPreferences}
+     *
+     * @since 0.6.0
+     */
+    private final Map<OnSharedPreferenceChangeListener, Object> listeners =
+            new WeakHashMap<OnSharedPreferenceChangeListener, Object>();
+
+    /**
+     * Guard ordering of in-memory changes and their persistence
+     *
+     * @since 0.6.0
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Write-through target, or null for memory only values
+     *
+     * @since 0.6.0
+     */
+    final SharedPreferences target;
+
+    /**
+     * Create empty, memory only preferences.
+     *
+     * @since 0.6.0
+     */
+    public MemorySharedPreferences() {
+        this.target = null;
+    }
+
+    /**
+     * Create preferences loaded from and written through to given target.
+     *
+     * @param target persistent preferences
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public MemorySharedPreferences(@NonNull SharedPreferences target) {
+        this.target = target;
+        for (Map.Entry<String, ?> entry : target.getAll().entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Set) {
+                value = Collections.unmodifiableSet(new HashSet<String>((Set<String>) value));
+            }
+            if (entry.getKey() != null && value != null) {
+                values.put(entry.getKey(), value);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, ?> getAll() {
+        return new HashMap<String, Object>(values);
+    }
+
+    @Nullable
+    @Override
+    public String getString(String key, @Nullable String defValue) {
+        String value = (String) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+        Set<String> value = (Set<String>) values.get(key);
+        return value != null ? value : defValues;
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        Integer value = (Integer) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        Long value = (Long) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        Float value = (Float) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Boolean value = (Boolean) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new MemoryEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (listeners) {
+            listeners.put(listener, this);
+        }
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Persist changes already applied to memory.
+     * <p>
+     * Called while holding the write lock, so changes are persisted in
+     * commit order. Write-through changes are applied to the target.
+     *
+     * @param clear   true if all values were removed first
+     * @param changes changed values, with null for removed ones
+     * @return {@link Future} of persistence result, or null if
+     * {@link #sync()} should be used to await persistence
+     * @since 0.6.0
+     */
+    @Nullable
+    Future<Boolean> persist(boolean clear, @NonNull Map<String, Object> changes) {
+        if (target != null) {
+            SharedPreferences.Editor editor = target.edit();
+            if (clear) {
+                editor.clear();
+            }
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                put(editor, change.getKey(), change.getValue());
+            }
+            editor.apply();
+        }
+        return null;
+    }
+
+    /**
+     * Block until all changes applied to the target are persisted.
+     *
+     * @return true if changes were persisted
+     * @since 0.6.0
+     */
+    boolean sync() {
+        // empty commit is queued after in-flight applies
+        return target == null || target.edit().commit();
+    }
+
+    /**
+     * Apply editor changes to memory, then persist them.
+     *
+     * @param clear   true if all values should be removed first
+     * @param changes changed values, with null for removed ones
+     * @return {@link Future} of persistence result, or null if
+     * {@link #sync()} should be used to await persistence
+     * @since 0.6.0
+     */
+    @Nullable
+    private Future<Boolean> write(boolean clear, @NonNull Map<String, Object> changes) {
+        final List<String> changed = new ArrayList<String>();
+        Future<Boolean> written;
+        synchronized (lock) {
+            if (clear && !values.isEmpty()) {
+                values.clear();
+                changed.add(null);
+            }
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                String key = change.getKey();
+                Object value = change.getValue();
+                Object previous = value == null ? values.remove(key) : values.put(key, value);
+                if (value == null ? previous != null : !value.equals(previous)) {
+                    changed.add(key);
+                }
+            }
+            written = persist(clear, changes);
+        }
+        notifyListeners(changed);
+        return written;
+    }
+
+    private void notifyListeners(@NonNull final List<String> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        final List<OnSharedPreferenceChangeListener> targets;
+        synchronized (listeners) {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            targets = new ArrayList<OnSharedPreferenceChangeListener>(listeners.keySet());
+        }
+        Runnable notify = new Runnable() {
+            @Override
+            public void run() {
+                for (String key : changed) {
+                    for (OnSharedPreferenceChangeListener listener : targets) {
+                        listener.onSharedPreferenceChanged(MemorySharedPreferences.this, key);
+                    }
+                }
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notify.run();
+        } else {
+            main.post(notify);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static void put(@NonNull SharedPreferences.Editor editor,
+                    @NonNull String key, @Nullable Object value) {
+        if (value == null) {
+            editor.remove(key);
+        } else if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof Set) {
+            editor.putStringSet(key, (Set<String>) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof Float) {
+            editor.putFloat(key, (Float) value);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        }
+    }
+
+    /**
+     * {@link SharedPreferences.Editor} which collect changes and apply them in one write
+     *
+     * @since 0.6.0
+     */
+    private final class MemoryEditor implements Editor {
+        private final Map<String, Object> changes = new LinkedHashMap<String, Object>();
+        private boolean clear = false;
+
+        @Override
+        public Editor putString(String key, @Nullable String value) {
+            synchronized (changes) {
+                changes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public Editor putStringSet(String key, @Nullable Set<String> values) {
+            synchronized (changes) {
+                changes.put(key, values == null ? null
+                        : Collections.unmodifiableSet(new HashSet<String>(values)));
+            }
+            return this;
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            synchronized (changes) {
+                changes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            synchronized (changes) {
+                changes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            synchronized (changes) {
+                changes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            synchronized (changes) {
+                changes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public Editor remove(String key) {
+            synchronized (changes) {
+                changes.put(key, null);
+            }
+            return this;
+        }
+
+        @Override
+        public Editor clear() {
+            synchronized (changes) {
+                clear = true;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            try {
+                Future<Boolean> written = submit();
+                return written != null ? written.get() : sync();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void apply() {
+            submit();
+        }
+
+        @Nullable
+        private Future<Boolean> submit() {
+            synchronized (changes) {
+                Future<Boolean> written = write(clear, new LinkedHashMap<String, Object>(changes));
+                changes.clear();
+                clear = false;
+                return written;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Listener of preferences operations timings, sizes and failures.
+ * <p>
+ * Install with {@link Preferences#metrics(Metrics)}. All methods do nothing
+ * by default, so only override the ones of interest. Methods are called on the
+ * thread performing the operation and must return quickly.
+ * <p>
+ * When no listener is installed instrumentation costs a single field read
+ * per operation.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see MetricsRegistry
+ * @since 0.6.0
+ */
+public abstract class Metrics {
+    /**
+     * Installed listener, or null when metrics are disabled
+     *
+     * @since 0.6.0
+     */
+    static volatile Metrics current;
+
+    /**
+     * Called after a value was read.
+     *
+     * @param store name of the store
+     * @param key   preference key
+     * @param nanos read duration, including decoding of generic values
+     * @since 0.6.0
+     */
+    public void onRead(@NonNull String store, @NonNull String key, long nanos) {
+    }
+
+    /**
+     * Called after a value was written.
+     *
+     * @param store name of the store
+     * @param key   preference key
+     * @param bytes approximate size of written value
+     * @param nanos write duration, including lock wait, encoding and commit
+     * @since 0.6.0
+     */
+    public void onWrite(@NonNull String store, @NonNull String key, int bytes, long nanos) {
+    }
+
+    /**
+     * Called after changes were committed, or accepted for background write.
+     *
+     * @param store     name of the store
+     * @param nanos     commit duration
+     * @param committed true if changes were written
+     * @since 0.6.0
+     */
+    public void onCommit(@NonNull String store, long nanos, boolean committed) {
+    }
+
+    /**
+     * Called after a generic value was encoded.
+     *
+     * @param type   value type
+     * @param length length of encoded value
+     * @param nanos  encoding duration
+     * @since 0.6.0
+     */
+    public void onEncode(@NonNull Class<?> type, int length, long nanos) {
+    }
+
+    /**
+     * Called after a generic value was decoded.
+     *
+     * @param type   value type
+     * @param length length of decoded value
+     * @param nanos  decoding duration
+     * @since 0.6.0
+     */
+    public void onDecode(@NonNull Class<?> type, int length, long nanos) {
+    }
+
+    /**
+     * Called after a change was dispatched to observers.
+     *
+     * @param store       name of the store
+     * @param key         changed preference key, or null if all keys were cleared
+     * @param subscribers number of notified subscribers
+     * @since 0.6.0
+     */
+    public void onDispatch(@NonNull String store, @Nullable String key, int subscribers) {
+    }
+
+    /**
+     * Called when a failure was swallowed and a default value returned.
+     *
+     * @param store name of the store, or empty if failure is not bound to a store
+     * @param key   preference key, or null if failure is not bound to a key
+     * @param error swallowed failure
+     * @since 0.6.0
+     */
+    public void onError(@NonNull String store, @Nullable String key, @NonNull Exception error) {
+    }
+}
@@ -0,0 +1,323 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link Metrics} which aggregate reported values into histograms and counters,
+ * ready to be exported periodically.
+ * <pre>
+ * MetricsRegistry registry = new MetricsRegistry();
+ * Preferences.metrics(registry);
+ * ...
+ * long p99 = registry.histogram(MetricsRegistry.COMMIT).percentile(0.99);
+ * </pre>
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public class MetricsRegistry extends Metrics {
+    /**
+     * Operation names of latency histograms
+     *
+     * @since 0.6.0
+     */
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+    public static final String COMMIT = "commit";
+    public static final String ENCODE = "encode";
+    public static final String DECODE = "decode";
+
+    private final ConcurrentMap<String, Histogram> histograms =
+            new ConcurrentHashMap<String, Histogram>();
+    private final Histogram payloads = new Histogram();
+    private final ConcurrentMap<String, AtomicLong> reads = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, AtomicLong> writes = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong dispatches = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong failedCommits = new AtomicLong();
+
+    @Override
+    public void onRead(@NonNull String store, @NonNull String key, long nanos) {
+        histogram(READ).record(nanos);
+        increment(reads, store + "/" + key);
+    }
+
+    @Override
+    public void onWrite(@NonNull String store, @NonNull String key, int bytes, long nanos) {
+        histogram(WRITE).record(nanos);
+        payloads.record(bytes);
+        increment(writes, store + "/" + key);
+    }
+
+    @Override
+    public void onCommit(@NonNull String store, long nanos, boolean committed) {
+        histogram(COMMIT).record(nanos);
+        if (!committed) {
+            failedCommits.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onEncode(@NonNull Class<?> type, int length, long nanos) {
+        histogram(ENCODE).record(nanos);
+    }
+
+    @Override
+    public void onDecode(@NonNull Class<?> type, int length, long nanos) {
+        histogram(DECODE).record(nanos);
+    }
+
+    @Override
+    public void onDispatch(@NonNull String store, @Nullable String key, int subscribers) {
+        dispatches.addAndGet(subscribers);
+    }
+
+    @Override
+    public void onError(@NonNull String store, @Nullable String key, @NonNull Exception error) {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Obtain latency histogram of given operation.
+     *
+     * @param operation operation name i.e {@link #READ}
+     * @return latency histogram in nanoseconds
+     * @since 0.6.0
+     */
+    @NonNull
+    public Histogram histogram(@NonNull String operation) {
+        Histogram histogram = histograms.get(operation);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = histograms.putIfAbsent(operation, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Obtain histogram of written values sizes.
+     *
+     * @return payload size histogram in bytes
+     * @since 0.6.0
+     */
+    @NonNull
+    public Histogram payloads() {
+        return payloads;
+    }
+
+    /**
+     * Obtain number of reads per key, keyed by {@code store/key}.
+     *
+     * @return copy of read counts
+     * @since 0.6.0
+     */
+    @NonNull
+    public Map<String, Long> reads() {
+        return snapshot(reads);
+    }
+
+    /**
+     * Obtain number of writes per key, keyed by {@code store/key}.
+     *
+     * @return copy of write counts
+     * @since 0.6.0
+     */
+    @NonNull
+    public Map<String, Long> writes() {
+        return snapshot(writes);
+    }
+
+    /**
+     * Obtain number of change notifications delivered to observers.
+     *
+     * @return dispatch count
+     * @since 0.6.0
+     */
+    public long dispatches() {
+        return dispatches.get();
+    }
+
+    /**
+     * Obtain number of swallowed failures.
+     *
+     * @return error count
+     * @since 0.6.0
+     */
+    public long errors() {
+        return errors.get();
+    }
+
+    /**
+     * Obtain number of commits which failed to write.
+     *
+     * @return failed commit count
+     * @since 0.6.0
+     */
+    public long failedCommits() {
+        return failedCommits.get();
+    }
+
+    /**
+     * Drop all collected values.
+     *
+     * @since 0.6.0
+     */
+    public void reset() {
+        histograms.clear();
+        payloads.reset();
+        reads.clear();
+        writes.clear();
+        dispatches.set(0);
+        errors.set(0);
+        failedCommits.set(0);
+    }
+
+    private static void increment(@NonNull ConcurrentMap<String, AtomicLong> counts, @NonNull String key) {
+        AtomicLong count = counts.get(key);
+        if (count == null) {
+            AtomicLong created = new AtomicLong();
+            count = counts.putIfAbsent(key, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    @NonNull
+    private static Map<String, Long> snapshot(@NonNull ConcurrentMap<String, AtomicLong> counts) {
+        Map<String, Long> snapshot = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Lock free histogram with power of two buckets.
+     *
+     * @since 0.6.0
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Record given value.
+         *
+         * @param value recorded value
+         * @since 0.6.0
+         */
+        public void record(long value) {
+            long recorded = Math.max(0L, value);
+            // bucket of values below 2^bits, where bits never exceed 63
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(recorded));
+            count.incrementAndGet();
+            sum.addAndGet(recorded);
+            long current = max.get();
+            while (recorded > current && !max.compareAndSet(current, recorded)) {
+                current = max.get();
+            }
+        }
+
+        /**
+         * Obtain number of recorded values.
+         *
+         * @since 0.6.0
+         */
+        public long count() {
+            return count.get();
+        }
+
+        /**
+         * Obtain sum of recorded values.
+         *
+         * @since 0.6.0
+         */
+        public long sum() {
+            return sum.get();
+        }
+
+        /**
+         * Obtain maximum recorded value.
+         *
+         * @since 0.6.0
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * Obtain mean of recorded values.
+         *
+         * @since 0.6.0
+         */
+        public double mean() {
+            long recorded = count.get();
+            return recorded == 0 ? 0 : (double) sum.get() / recorded;
+        }
+
+        /**
+         * Obtain upper bound of bucket holding given percentile.
+         *
+         * @param percentile percentile between 0 and 1 i.e 0.99
+         * @return approximate percentile value, within a factor of two
+         * @since 0.6.0
+         */
+        public long percentile(double percentile) {
+            long recorded = count.get();
+            if (recorded == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * recorded);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen > 0 && seen >= rank) {
+                    return Math.min(max.get(), i == 0 ? 0 : (1L << i) - 1);
+                }
+            }
+            return max.get();
+        }
+
+        /**
+         * Obtain copy of bucket counts, where bucket {@code i} holds values
+         * below {@code 2^i}.
+         *
+         * @since 0.6.0
+         */
+        @NonNull
+        public long[] buckets() {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+            }
+            return copy;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Versioned step which upgrade stored preferences to a newer schema.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see Preferences#migration(int, Migration)
+ * @since 0.6.0
+ */
+public interface Migration {
+    /**
+     * Record changes of this step.
+     * <p>
+     * Reads see changes recorded by this and earlier steps. Nothing is
+     * written until all pending steps succeed.
+     *
+     * @param migrator reads values and records changes
+     * @throws Exception if step failed, which abort the whole migration
+     * @since 0.6.0
+     */
+    void migrate(@NonNull Migrator migrator) throws Exception;
+}
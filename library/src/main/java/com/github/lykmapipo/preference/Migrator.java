@@ -0,0 +1,365 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Record changes of {@link Migration} steps, to be written in a single batch.
+ * <p>
+ * Reads see recorded changes first, then stored values.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public final class Migrator {
+    /**
+     * Marker of removed keys
+     *
+     * @since 0.6.0
+     */
+    private static final Object REMOVED = new Object();
+
+    /**
+     * Recorded changes, in order
+     *
+     * @since 0.6.0
+     */
+    private final Map<String, Object> changes = new LinkedHashMap<String, Object>();
+
+    Migrator() {
+    }
+
+    /**
+     * Check if given key has a value.
+     *
+     * @param key preference key
+     * @return true if key has a value
+     * @since 0.6.0
+     */
+    public boolean contains(@NonNull String key) {
+        return value(key) != null;
+    }
+
+    /**
+     * Obtain {@link String} value, or raw json of a generic value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key has no string value
+     * @return current value, or the provided default
+     * @since 0.6.0
+     */
+    @Nullable
+    public String get(@NonNull String key, @Nullable String defaultValue) {
+        Object value = value(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    /**
+     * Obtain {@link Set} of {@link String} value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key has no string set value
+     * @return current value, or the provided default
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValue) {
+        Object value = value(key);
+        return value instanceof Set ? (Set<String>) value : defaultValue;
+    }
+
+    /**
+     * Obtain integer value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key has no integer value
+     * @return current value, or the provided default
+     * @since 0.6.0
+     */
+    public int getInt(@NonNull String key, int defaultValue) {
+        Object value = value(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    /**
+     * Obtain long value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key has no long value
+     * @return current value, or the provided default
+     * @since 0.6.0
+     */
+    public long getLong(@NonNull String key, long defaultValue) {
+        Object value = value(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    /**
+     * Obtain float value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key has no float value
+     * @return current value, or the provided default
+     * @since 0.6.0
+     */
+    public float getFloat(@NonNull String key, float defaultValue) {
+        Object value = value(key);
+        return value instanceof Float ? (Float) value : defaultValue;
+    }
+
+    /**
+     * Obtain boolean value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key has no boolean value
+     * @return current value, or the provided default
+     * @since 0.6.0
+     */
+    public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        Object value = value(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    /**
+     * Obtain generic value, decoded with the codec of given type.
+     *
+     * @param key  preference key
+     * @param type value type
+     * @return decoded value, or null if key has no value
+     * @since 0.6.0
+     */
+    @Nullable
+    public <T> T get(@NonNull String key, @NonNull Class<T> type) {
+        Object value = value(key);
+        return value instanceof String ? Codecs.decode((String) value, type) : null;
+    }
+
+    /**
+     * Record a {@link String} value.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public Migrator set(@NonNull String key, @NonNull String value) {
+        changes.put(key, value);
+        return this;
+    }
+
+    /**
+     * Record a {@link Set} of {@link String} value.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public Migrator set(@NonNull String key, @NonNull Set<String> value) {
+        changes.put(key, Collections.unmodifiableSet(new HashSet<String>(value)));
+        return this;
+    }
+
+    /**
+     * Record an integer value.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public Migrator set(@NonNull String key, @NonNull Integer value) {
+        changes.put(key, value);
+        return this;
+    }
+
+    /**
+     * Record a long value.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public Migrator set(@NonNull String key, @NonNull Long value) {
+        changes.put(key, value);
+        return this;
+    }
+
+    /**
+     * Record a float value.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public Migrator set(@NonNull String key, @NonNull Float value) {
+        changes.put(key, value);
+        return this;
+    }
+
+    /**
+     * Record a boolean value.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public Migrator set(@NonNull String key, @NonNull Boolean value) {
+        changes.put(key, value);
+        return this;
+    }
+
+    /**
+     * Record a generic value, encoded with the codec of its type.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public <T> Migrator set(@NonNull String key, @NonNull T value) {
+        try {
+            changes.put(key, Codecs.encode(value));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unable to encode value of " + key, e);
+        }
+        return this;
+    }
+
+    /**
+     * Record removal of given keys.
+     *
+     * @param keys preference keys
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public Migrator remove(@NonNull String... keys) {
+        for (String key : keys) {
+            changes.put(key, REMOVED);
+        }
+        return this;
+    }
+
+    /**
+     * Record move of a value, of any type, to a new key.
+     *
+     * @param from current preference key
+     * @param to   new preference key
+     * @return this migrator
+     * @since 0.6.0
+     */
+    @NonNull
+    public Migrator rename(@NonNull String from, @NonNull String to) {
+        Object value = value(from);
+        if (value != null && !from.equals(to)) {
+            changes.put(to, value);
+            changes.put(from, REMOVED);
+        }
+        return this;
+    }
+
+    /**
+     * Record rewrite of a generic value stored as json.
+     * <p>
+     * Stored json is decoded as given type, and the value returned by the
+     * rewriter is encoded back under the same key, so fields can be renamed
+     * or converted by decoding into the old shape and returning the new one.
+     *
+     * @param key      preference key
+     * @param type     type stored value is decoded as
+     * @param rewriter converts decoded value
+     * @return this migrator
+     * @throws Exception if value could not be decoded or rewritten
+     * @since 0.6.0
+     */
+    @NonNull
+    public <T> Migrator rewrite(@NonNull String key, @NonNull Class<T> type,
+                                @NonNull Rewriter<T> rewriter) throws Exception {
+        T value = get(key, type);
+        if (value != null) {
+            Object rewritten = rewriter.rewrite(value);
+            if (rewritten == null) {
+                remove(key);
+            } else {
+                changes.put(key, rewritten instanceof String
+                        ? rewritten : Codecs.encode(rewritten));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Add recorded changes to given batch.
+     *
+     * @param batch batch to write
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    void apply(@NonNull Batch batch) {
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String key = change.getKey();
+            Object value = change.getValue();
+            if (value == REMOVED) {
+                batch.remove(key);
+            } else if (value instanceof String) {
+                batch.set(key, (String) value);
+            } else if (value instanceof Set) {
+                batch.set(key, (Set<String>) value);
+            } else if (value instanceof Integer) {
+                batch.set(key, (Integer) value);
+            } else if (value instanceof Long) {
+                batch.set(key, (Long) value);
+            } else if (value instanceof Float) {
+                batch.set(key, (Float) value);
+            } else if (value instanceof Boolean) {
+                batch.set(key, (Boolean) value);
+            }
+        }
+    }
+
+    @Nullable
+    private Object value(@NonNull String key) {
+        if (changes.containsKey(key)) {
+            Object value = changes.get(key);
+            return value == REMOVED ? null : value;
+        }
+        return Preferences.route(key).values(Collections.singleton(key)).get(key);
+    }
+
+    /**
+     * Convert a decoded generic value during a migration.
+     *
+     * @since 0.6.0
+     */
+    public interface Rewriter<T> {
+        /**
+         * Convert given value.
+         *
+         * @param value decoded stored value
+         * @return new value to encode, or null to remove the key
+         * @throws Exception if value could not be converted
+         * @since 0.6.0
+         */
+        @Nullable
+        Object rewrite(@NonNull T value) throws Exception;
+    }
+}
@@ -0,0 +1,410 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.github.lykmapipo.common.Common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Appendable list stored in fixed size chunks under derived keys.
+ * <p>
+ * Each chunk hold its items encoded on their own, so appending rewrite
+ * only the last chunk, and reading a page or iterating decode only the
+ * chunks it covers. A meta key hold the chunk size and the absolute
+ * positions of the first and next items, so trimming oldest items drop
+ * whole chunks without moving others.
+ * <p>
+ * Writes are atomic with respect to each other. Reads are not isolated from
+ * concurrent trims, and skip items trimmed while reading.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see PreferenceStore#list(String, Class)
+ * @since 0.6.0
+ */
+public final class PagedList<T> implements Iterable<T> {
+    /**
+     * Default number of items per chunk
+     *
+     * @since 0.6.0
+     */
+    public static final int CHUNK_SIZE = 100;
+
+    /**
+     * Prefix of list meta and chunk keys
+     *
+     * @since 0.6.0
+     */
+    static final String PREFIX = "preferences.list.";
+
+    private final PreferenceStore store;
+    private final String key;
+    private final Class<T> type;
+    private final int chunkSize;
+
+    /**
+     * Key of list meta
+     *
+     * @since 0.6.0
+     */
+    private final String meta;
+
+    PagedList(@NonNull PreferenceStore store, @NonNull String key,
+              @NonNull Class<T> type, int chunkSize) {
+        this.store = store;
+        this.key = key;
+        this.type = type;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.meta = PREFIX + key;
+    }
+
+    /**
+     * Obtain number of items.
+     *
+     * @return number of items, or 0 if list could not be read
+     * @since 0.6.0
+     */
+    public int size() {
+        try {
+            return meta().size();
+        } catch (Exception e) {
+            store.failed(key, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Check if list has no items.
+     *
+     * @return true if list is empty
+     * @since 0.6.0
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Append an item.
+     *
+     * @param item item to append
+     * @return true if item was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean append(@NonNull T item) {
+        return append(Collections.singletonList(item));
+    }
+
+    /**
+     * Append items in a single commit, rewriting only the last chunk and
+     * chunks created for the items.
+     *
+     * @param items items to append
+     * @return true if items were successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean append(@NonNull Collection<? extends T> items) {
+        if (items.isEmpty()) {
+            return true;
+        }
+        store.lock(meta);
+        try {
+            Meta current = meta();
+            Map<String, String> values = new LinkedHashMap<String, String>();
+            long position = current.tail;
+            long chunk = position / current.chunkSize;
+            List<String> encoded = position % current.chunkSize == 0
+                    ? new ArrayList<String>() : chunk(chunk);
+            while (encoded.size() < position % current.chunkSize) {
+                // slots of items trimmed together with their chunk
+                encoded.add("null");
+            }
+            for (T item : items) {
+                if (encoded.size() == current.chunkSize) {
+                    values.put(chunkKey(chunk), encode(encoded));
+                    chunk++;
+                    encoded = new ArrayList<String>();
+                }
+                encoded.add(Codecs.encode(item));
+                position++;
+            }
+            values.put(chunkKey(chunk), encode(encoded));
+            values.put(meta, new Meta(current.chunkSize, current.head, position).encode());
+            return store.write(values, Collections.<String>emptyList());
+        } catch (Exception e) {
+            store.failed(key, e);
+            return false;
+        } finally {
+            store.unlock(meta);
+        }
+    }
+
+    /**
+     * Obtain item at given index, with index 0 being the oldest item.
+     *
+     * @param index item index
+     * @return decoded item, or null if there is no such item
+     * @since 0.6.0
+     */
+    @Nullable
+    public T get(int index) {
+        List<T> page = page(index, 1);
+        return page.isEmpty() ? null : page.get(0);
+    }
+
+    /**
+     * Obtain a page of items, decoding only the chunks holding them.
+     *
+     * @param offset index of first item
+     * @param limit  maximum number of items
+     * @return items of the page, oldest first
+     * @since 0.6.0
+     */
+    @NonNull
+    public List<T> page(int offset, int limit) {
+        List<T> page = new ArrayList<T>();
+        try {
+            Meta current = meta();
+            long from = current.head + Math.max(0, offset);
+            long to = Math.min(current.tail, from + Math.max(0, limit));
+            long loaded = -1;
+            List<String> encoded = Collections.emptyList();
+            for (long position = from; position < to; position++) {
+                long chunk = position / current.chunkSize;
+                if (chunk != loaded) {
+                    encoded = chunk(chunk);
+                    loaded = chunk;
+                }
+                int slot = (int) (position % current.chunkSize);
+                if (slot < encoded.size()) {
+                    page.add(Codecs.decode(encoded.get(slot), type));
+                }
+            }
+        } catch (Exception e) {
+            store.failed(key, e);
+        }
+        return page;
+    }
+
+    /**
+     * Iterate items oldest first, loading one chunk at a time.
+     * <p>
+     * Iteration cover items present when it started.
+     *
+     * @return streaming iterator
+     * @since 0.6.0
+     */
+    @NonNull
+    @Override
+    public Iterator<T> iterator() {
+        Meta current;
+        try {
+            current = meta();
+        } catch (Exception e) {
+            store.failed(key, e);
+            current = new Meta(chunkSize, 0, 0);
+        }
+        return new ChunkIterator(current);
+    }
+
+    /**
+     * Drop oldest items so at most given number of items remain.
+     *
+     * @param maxSize maximum number of items to keep
+     * @return true if items were successfully removed from persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean trim(int maxSize) {
+        store.lock(meta);
+        try {
+            Meta current = meta();
+            if (current.size() <= Math.max(0, maxSize)) {
+                return true;
+            }
+            long head = current.tail - Math.max(0, maxSize);
+            List<String> removed = new ArrayList<String>();
+            for (long chunk = current.head / current.chunkSize;
+                 chunk < head / current.chunkSize; chunk++) {
+                removed.add(chunkKey(chunk));
+            }
+            if (head == current.tail) {
+                // keep no partially filled chunk around
+                removed.add(chunkKey(head / current.chunkSize));
+            }
+            Map<String, String> values = Collections.singletonMap(
+                    meta, new Meta(current.chunkSize, head, current.tail).encode());
+            return store.write(values, removed);
+        } catch (Exception e) {
+            store.failed(key, e);
+            return false;
+        } finally {
+            store.unlock(meta);
+        }
+    }
+
+    /**
+     * Remove all items and the list meta in a single commit.
+     *
+     * @return true if list was successfully removed from persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean clear() {
+        store.lock(meta);
+        try {
+            Meta current = meta();
+            List<String> removed = new ArrayList<String>();
+            for (long chunk = current.head / current.chunkSize;
+                 chunk <= current.tail / current.chunkSize; chunk++) {
+                removed.add(chunkKey(chunk));
+            }
+            removed.add(meta);
+            return store.write(Collections.<String, String>emptyMap(), removed);
+        } catch (Exception e) {
+            store.failed(key, e);
+            return false;
+        } finally {
+            store.unlock(meta);
+        }
+    }
+
+    @NonNull
+    private Meta meta() throws IOException {
+        Meta current = Meta.decode(store.read(meta));
+        return current != null ? current : new Meta(chunkSize, 0, 0);
+    }
+
+    @NonNull
+    private String chunkKey(long chunk) {
+        return meta + "#" + chunk;
+    }
+
+    /**
+     * Read encoded items of given chunk.
+     *
+     * @return encoded items, or empty list if chunk does not exist
+     * @since 0.6.0
+     */
+    @NonNull
+    private List<String> chunk(long chunk) throws IOException {
+        String raw = store.read(chunkKey(chunk));
+        String[] encoded = raw != null ? Common.Value.fromJson(raw, String[].class) : null;
+        return encoded != null
+                ? new ArrayList<String>(Arrays.asList(encoded)) : new ArrayList<String>();
+    }
+
+    @NonNull
+    private static String encode(@NonNull List<String> encoded) {
+        return Common.Value.toJson(encoded.toArray(new String[encoded.size()]));
+    }
+
+    /**
+     * Chunk size and absolute positions of first and next items
+     *
+     * @since 0.6.0
+     */
+    private static final class Meta {
+        final int chunkSize;
+        final long head;
+        final long tail;
+
+        Meta(int chunkSize, long head, long tail) {
+            this.chunkSize = chunkSize;
+            this.head = head;
+            this.tail = tail;
+        }
+
+        int size() {
+            return (int) (tail - head);
+        }
+
+        @NonNull
+        String encode() {
+            return chunkSize + ":" + head + ":" + tail;
+        }
+
+        @Nullable
+        static Meta decode(@Nullable String raw) {
+            if (raw == null) {
+                return null;
+            }
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                return new Meta(Integer.parseInt(parts[0]),
+                        Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * {@link Iterator} which decode items one chunk at a time
+     *
+     * @since 0.6.0
+     */
+    private final class ChunkIterator implements Iterator<T> {
+        private final Meta bounds;
+        private long position;
+        private long loaded = -1;
+        private List<String> encoded = Collections.emptyList();
+
+        ChunkIterator(@NonNull Meta bounds) {
+            this.bounds = bounds;
+            this.position = bounds.head;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position < bounds.tail) {
+                long chunk = position / bounds.chunkSize;
+                if (chunk != loaded) {
+                    try {
+                        encoded = chunk(chunk);
+                    } catch (Exception e) {
+                        store.failed(key, e);
+                        encoded = Collections.emptyList();
+                    }
+                    loaded = chunk;
+                }
+                if (position % bounds.chunkSize < encoded.size()) {
+                    return true;
+                }
+                // trimmed since iteration started
+                position = (chunk + 1) * bounds.chunkSize;
+            }
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String item = encoded.get((int) (position % bounds.chunkSize));
+            position++;
+            return Codecs.decode(item, type);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
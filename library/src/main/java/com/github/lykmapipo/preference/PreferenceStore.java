@@ -0,0 +1,2876 @@
+package com.github.lykmapipo.preference;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import com.github.lykmapipo.common.Common;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A named, independently locked {@link SharedPreferences} file with typed
+ * getter and setter methods.
+ * <p>
+ * Obtain instances with {@link Preferences#store(String)}.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public class PreferenceStore {
+    /**
+     * Number of lock stripes used to coordinate writes.
+     *
+     * @since 0.6.0
+     */
+    private static final int LOCK_STRIPES = 16;
+
+    /**
+     * Default maximum number of cached decoded values.
+     *
+     * @since 0.6.0
+     */
+    static final int CACHE_SIZE = 64;
+
+    /**
+     * Number of buckets element sets are hashed into, a power of two.
+     *
+     * @since 0.6.0
+     */
+    static final int SET_BUCKETS = 64;
+
+    /**
+     * Prefix of keys used internally, hidden from reads of all or prefixed keys.
+     *
+     * @since 0.6.0
+     */
+    static final String RESERVED_PREFIX = "preferences.";
+
+    /**
+     * Prefix of keys of element set buckets.
+     *
+     * @since 0.6.0
+     */
+    static final String SET_PREFIX = "preferences.set.";
+
+    /**
+     * Main thread {@link Handler} used to deliver coalesced emissions.
+     *
+     * @since 0.6.0
+     */
+    private static final Handler main = new Handler(Looper.getMainLooper());
+
+    /**
+     * Single background thread shared by all stores, used to await
+     * persistence of asynchronous writes.
+     *
+     * @since 0.6.0
+     */
+    private static ExecutorService writer;
+
+    /**
+     * Default period between sweeps of expired values.
+     *
+     * @since 0.6.0
+     */
+    static final long SWEEP_PERIOD = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Single background thread shared by all stores, used to sweep expired values.
+     *
+     * @since 0.6.0
+     */
+    private static ScheduledExecutorService sweeper;
+
+    /**
+     * Periodic sweep of expired values, or null if not scheduled
+     *
+     * @since 0.6.0
+     */
+    private static ScheduledFuture<?> sweeping;
+
+    /**
+     * Period, in nanoseconds, between sweeps of expired values
+     *
+     * @since 0.6.0
+     */
+    private static long sweepPeriod = SWEEP_PERIOD;
+
+    /**
+     * Stores holding values with a time to live
+     *
+     * @since 0.6.0
+     */
+    private static final Set<PreferenceStore> expiring =
+            Collections.newSetFromMap(new ConcurrentHashMap<PreferenceStore, Boolean>());
+
+    /**
+     * Store name
+     *
+     * @since 0.6.0
+     */
+    private final String name;
+
+    /**
+     * Underlying {@link SharedPreferences} of this store.
+     *
+     * @since 0.6.0
+     */
+    private final SharedPreferences preferences;
+
+    /**
+     * Flag whether writes are persisted in background using
+     * {@link SharedPreferences.Editor#apply()} instead of blocking
+     * {@link SharedPreferences.Editor#commit()}.
+     *
+     * @since 0.6.0
+     */
+    private volatile boolean async = false;
+
+    /**
+     * Flag whether observers only receive coalesced emissions of changed values.
+     *
+     * @since 0.6.0
+     */
+    private volatile boolean distinct = false;
+
+    /**
+     * Per key striped locks used by writes, so reads never wait on writes.
+     *
+     * @since 0.6.0
+     */
+    private final Locks locks = new Locks(LOCK_STRIPES);
+
+    /**
+     * Cache of values decoded from json, used by {@link #get(String, Class)}.
+     *
+     * @since 0.6.0
+     */
+    private final ValueCache cache = new ValueCache(CACHE_SIZE);
+
+    /**
+     * Sorted index of keys, used by prefix scans.
+     *
+     * @since 0.6.0
+     */
+    private final KeyIndex index = new KeyIndex();
+
+    /**
+     * Expiry times of values written with a time to live.
+     *
+     * @since 0.6.0
+     */
+    private final Expiries expiries = new Expiries();
+
+    /**
+     * Flag whether a sweep of expired values found on read is queued
+     *
+     * @since 0.6.0
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    /**
+     * Side files of large values, or null when store can not offload values.
+     *
+     * @since 0.6.0
+     */
+    private final ValueFiles files;
+
+    /**
+     * Compression of large or selected string values.
+     *
+     * @since 0.6.0
+     */
+    private final Compression compression = new Compression();
+
+    /**
+     * Single change listener which dispatch changes to observers of changed key.
+     * <p>
+     * Kept as a field since {@link SharedPreferences} only hold weak references to listeners.
+     *
+     * @since 0.6.0
+     */
+    private final Dispatcher dispatcher;
+
+    PreferenceStore(@NonNull String name, @Nullable SharedPreferences preferences) {
+        this(name, preferences, null);
+    }
+
+    PreferenceStore(@NonNull String name, @Nullable SharedPreferences preferences,
+                    @Nullable File directory) {
+        this.name = name;
+        this.preferences = preferences;
+        this.files = directory != null ? new ValueFiles(directory) : null;
+        this.dispatcher = new Dispatcher(name);
+        // drop cached values and index keys changed outside this store
+        dispatcher.subscribe(new Dispatcher.Subscriber() {
+            @Override
+            public void onChanged(@Nullable String key) {
+                if (key != null) {
+                    cache.invalidate(key);
+                    index.update(PreferenceStore.this.preferences, Collections.singleton(key));
+                } else {
+                    cache.invalidateAll();
+                    index.reset();
+                }
+            }
+        });
+        if (preferences != null) {
+            preferences.registerOnSharedPreferenceChangeListener(dispatcher);
+        }
+    }
+
+    /**
+     * Release resources held by this store
+     *
+     * @since 0.6.0
+     */
+    void dispose() {
+        if (preferences != null) {
+            // write buffered or in-flight changes before letting go
+            sync();
+            preferences.unregisterOnSharedPreferenceChangeListener(dispatcher);
+        }
+        expiring.remove(this);
+        cache.invalidateAll();
+        index.reset();
+    }
+
+    /**
+     * Obtain store name
+     *
+     * @return store name
+     * @since 0.6.0
+     */
+    @NonNull
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Enable or disable asynchronous writes.
+     * <p>
+     * When enabled, all set, remove and clear helpers update in-memory values
+     * immediately and persist them to disk in background. They then return
+     * true once values are visible to readers; use {@link #flush()} to wait
+     * until pending writes are on disk.
+     *
+     * @param async true to persist writes in background
+     * @since 0.6.0
+     */
+    public void async(@NonNull Boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * Enable or disable distinct emissions to observers.
+     * <p>
+     * When enabled, a burst of changes to an observed key is delivered as a
+     * single emission on the main thread, and no emission is delivered when
+     * the value is equal to the last delivered one.
+     *
+     * @param distinct true to coalesce and deduplicate emissions
+     * @since 0.6.0
+     */
+    public void distinct(@NonNull Boolean distinct) {
+        this.distinct = distinct;
+    }
+
+    /**
+     * Enable caching of decoded values of given types.
+     * <p>
+     * Cached values are shared by all callers of {@link #get(String, Class)},
+     * so only immutable types, whose instance fields are all final and
+     * immutable, can be registered.
+     *
+     * @param types value types to cache
+     * @throws IllegalArgumentException if a type is not immutable
+     * @since 0.6.0
+     */
+    public void cache(@NonNull Class<?>... types) {
+        cache.register(types);
+    }
+
+    /**
+     * Stop caching decoded values of all types.
+     *
+     * @since 0.6.0
+     */
+    void uncache() {
+        cache.unregisterAll();
+    }
+
+    /**
+     * Change maximum number of cached decoded values.
+     *
+     * @param maxSize maximum number of cached values
+     * @since 0.6.0
+     */
+    public void cache(int maxSize) {
+        cache.resize(maxSize);
+    }
+
+    /**
+     * Compress string and generic values above given length.
+     * <p>
+     * Values are only stored compressed when smaller, and values stored
+     * before compression was enabled are still read as is.
+     *
+     * @param threshold value length above which values are compressed, or zero to disable
+     * @since 0.6.0
+     */
+    public void compress(int threshold) {
+        compression.threshold(threshold);
+    }
+
+    /**
+     * Compress string and generic values of given keys regardless of length.
+     *
+     * @param keys preference keys
+     * @since 0.6.0
+     */
+    public void compress(@NonNull String... keys) {
+        compression.register(keys);
+    }
+
+    /**
+     * Store values above given length in side files, keeping only a small
+     * pointer in preferences.
+     * <p>
+     * Offloaded values are read lazily by {@link #get(String, Class)}, and their
+     * files deleted once keys are overwritten, removed or cleared. Enabling
+     * offloading also deletes files left behind by interrupted writes.
+     *
+     * @param threshold value length above which values are offloaded, or zero to disable
+     * @since 0.6.0
+     */
+    public void offload(int threshold) {
+        if (files == null) {
+            return;
+        }
+        files.threshold(threshold);
+        if (files.isEnabled()) {
+            writer().submit(new Runnable() {
+                @Override
+                public void run() {
+                    int[] held = locks.lockAll();
+                    try {
+                        files.sweep(preferences.getAll().values());
+                    } catch (Exception e) {
+                        failed(null, e);
+                    } finally {
+                        locks.unlock(held);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Wait for all pending asynchronous writes to be persisted.
+     * <p>
+     * Returned {@link Future} completes with true once all writes issued before
+     * this call are on disk, or false if they could not be written.
+     *
+     * @return {@link Future} of persistence result
+     * @since 0.6.0
+     */
+    @NonNull
+    public Future<Boolean> flush() {
+        return writer().submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return sync();
+            }
+        });
+    }
+
+    /**
+     * Block until all writes issued before this call are persisted.
+     *
+     * @return true if writes were persisted
+     * @since 0.6.0
+     */
+    boolean sync() {
+        try {
+            if (preferences instanceof MemorySharedPreferences) {
+                return ((MemorySharedPreferences) preferences).sync();
+            }
+            // empty commit is queued after in-flight applies
+            return preferences.edit().commit();
+        } catch (Exception e) {
+            failed(null, e);
+            return false;
+        }
+    }
+
+    /**
+     * Obtain single background thread used to await persistence of writes
+     *
+     * @return writer {@link ExecutorService}
+     * @since 0.6.0
+     */
+    @NonNull
+    static synchronized ExecutorService writer() {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "preferences-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return writer;
+    }
+
+    /**
+     * Change period between sweeps of expired values of all stores.
+     *
+     * @param period period between sweeps
+     * @param unit   unit of period
+     * @since 0.6.0
+     */
+    static synchronized void sweep(long period, @NonNull TimeUnit unit) {
+        sweepPeriod = Math.max(1L, unit.toNanos(period));
+        if (sweeping != null) {
+            sweeping.cancel(false);
+            sweeping = null;
+        }
+        if (!expiring.isEmpty()) {
+            startSweeper();
+        }
+    }
+
+    /**
+     * Schedule periodic sweep of stores holding values with a time to live.
+     *
+     * @since 0.6.0
+     */
+    private static synchronized void startSweeper() {
+        if (sweeping != null) {
+            return;
+        }
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "preferences-sweeper");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        sweeping = sweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                for (PreferenceStore store : expiring) {
+                    store.sweep();
+                    if (store.expiries.isEmpty()) {
+                        expiring.remove(store);
+                    }
+                }
+            }
+        }, sweepPeriod, sweepPeriod, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Persist given {@link SharedPreferences.Editor} changes using current write mode.
+     *
+     * @param editor editor with pending changes
+     * @return true if changes were written, or accepted for background write
+     * @since 0.6.0
+     */
+    private boolean commit(@NonNull SharedPreferences.Editor editor) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        boolean committed = true;
+        if (async) {
+            editor.apply();
+        } else {
+            committed = editor.commit();
+        }
+        if (metrics != null) {
+            metrics.onCommit(name, System.nanoTime() - start, committed);
+        }
+        return committed;
+    }
+
+    /**
+     * Prepare given string value for storage, compressing it and offloading
+     * it to a side file when above thresholds.
+     *
+     * @param key preference key
+     * @param raw value to store
+     * @return stored value
+     * @throws IOException if value could not be offloaded
+     * @since 0.6.0
+     */
+    @NonNull
+    String pack(@NonNull String key, @NonNull String raw) throws IOException {
+        String packed = compression.compress(key, raw);
+        return files != null && files.accepts(packed) ? files.write(packed) : packed;
+    }
+
+    /**
+     * Restore given stored value, reading offloaded values from their side
+     * file and decompressing compressed values.
+     *
+     * @param stored stored value
+     * @return original value
+     * @throws IOException if value could not be read
+     * @since 0.6.0
+     */
+    @Nullable
+    private String unpack(@Nullable String stored) throws IOException {
+        String raw = files != null && ValueFiles.isPointer(stored) ? files.read(stored) : stored;
+        return Compression.isCompressed(raw) ? Compression.decompress(raw) : raw;
+    }
+
+    /**
+     * Obtain pointer to side file stored under given key.
+     *
+     * @param key preference key
+     * @return stored pointer, or null if value is not offloaded
+     * @since 0.6.0
+     */
+    @Nullable
+    private String pointer(@NonNull String key) {
+        try {
+            String raw = preferences.getString(key, null);
+            return ValueFiles.isPointer(raw) ? raw : null;
+        } catch (ClassCastException e) {
+            // not a string value
+            return null;
+        }
+    }
+
+    /**
+     * Obtain pointers to side files currently stored under given keys.
+     *
+     * @param keys preference keys
+     * @return stored pointers keyed by preference key
+     * @since 0.6.0
+     */
+    @NonNull
+    private Map<String, String> pointers(@NonNull Collection<String> keys) {
+        Map<String, String> pointers = Collections.emptyMap();
+        if (files == null) {
+            return pointers;
+        }
+        for (String key : keys) {
+            String pointer = pointer(key);
+            if (pointer != null) {
+                if (pointers.isEmpty()) {
+                    pointers = new HashMap<String, String>();
+                }
+                pointers.put(key, pointer);
+            }
+        }
+        return pointers;
+    }
+
+    /**
+     * Delete side files of given pointers no longer stored under their keys.
+     * <p>
+     * With asynchronous writes, files are deleted once changes are on disk.
+     *
+     * @param pointers previous pointers keyed by preference key
+     * @since 0.6.0
+     */
+    private void release(@NonNull Map<String, String> pointers) {
+        if (pointers.isEmpty()) {
+            return;
+        }
+        final List<String> released = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : pointers.entrySet()) {
+            if (!entry.getValue().equals(pointer(entry.getKey()))) {
+                released.add(entry.getValue());
+            }
+        }
+        if (released.isEmpty()) {
+            return;
+        }
+        if (!async) {
+            for (String pointer : released) {
+                files.delete(pointer);
+            }
+            return;
+        }
+        writer().submit(new Runnable() {
+            @Override
+            public void run() {
+                if (sync()) {
+                    for (String pointer : released) {
+                        files.delete(pointer);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Obtain approximate size of given set of strings.
+     *
+     * @since 0.6.0
+     */
+    private static int size(@NonNull Set<String> values) {
+        int size = 0;
+        for (String value : values) {
+            size += value != null ? value.length() : 0;
+        }
+        return size;
+    }
+
+    /**
+     * Obtain start time of an instrumented operation.
+     *
+     * @param metrics installed metrics, or null when disabled
+     * @return start time, or zero when metrics are disabled
+     * @since 0.6.0
+     */
+    private static long start(@Nullable Metrics metrics) {
+        return metrics != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Report a read of given key started at given time.
+     *
+     * @since 0.6.0
+     */
+    private void read(@Nullable Metrics metrics, @NonNull String key, long start) {
+        if (metrics != null) {
+            metrics.onRead(name, key, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Report a write of given key started at given time.
+     *
+     * @since 0.6.0
+     */
+    private void wrote(@Nullable Metrics metrics, @NonNull String key, int bytes, long start) {
+        if (metrics != null) {
+            metrics.onWrite(name, key, bytes, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Report a swallowed failure.
+     *
+     * @param key   preference key, or null if failure is not bound to a key
+     * @param error swallowed failure
+     * @since 0.6.0
+     */
+    void failed(@Nullable String key, @NonNull Exception error) {
+        Metrics metrics = Metrics.current;
+        if (metrics != null) {
+            metrics.onError(name, key, error);
+        }
+    }
+
+    /**
+     * Encode given generic value, reporting encoding time.
+     *
+     * @since 0.6.0
+     */
+    @NonNull
+    private <T> String encode(@Nullable Metrics metrics, @NonNull T value) throws Exception {
+        long start = start(metrics);
+        String raw = Codecs.encode(value);
+        if (metrics != null) {
+            metrics.onEncode(value.getClass(), raw.length(), System.nanoTime() - start);
+        }
+        return raw;
+    }
+
+    /**
+     * Decode given stored value, reporting decoding time.
+     *
+     * @since 0.6.0
+     */
+    @Nullable
+    private <T> T decode(@Nullable Metrics metrics, @NonNull String raw, @NonNull Class<T> type) {
+        long start = start(metrics);
+        T value = Codecs.decode(raw, type);
+        if (metrics != null) {
+            metrics.onDecode(type, raw.length(), System.nanoTime() - start);
+        }
+        return value;
+    }
+
+    /**
+     * Drop cached decoded value of given keys, and update their index entries.
+     *
+     * @param keys changed preference keys
+     * @since 0.6.0
+     */
+    private void invalidate(@NonNull Collection<String> keys) {
+        if (!cache.isDisabled()) {
+            cache.invalidate(keys);
+        }
+        index.update(preferences, keys);
+    }
+
+    /**
+     * Helper method to retrieve a String value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @return The value from shared preferences, or null if the value could not be read.
+     */
+    @NonNull
+    public String get(@NonNull String key, @NonNull String defaultValue) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        try {
+            String stored = preferences.getString(key, defaultValue);
+            String value = expired(key, stored) ? defaultValue : unpack(stored);
+            read(metrics, key, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Helper method to write a String value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public Boolean set(@NonNull String key, @NonNull String value) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            Map<String, String> previous = pointers(Collections.singleton(key));
+            String stored = pack(key, value);
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putString(key, stored);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            invalidate(Collections.singleton(key));
+            if (committed) {
+                release(previous);
+            } else if (files != null && ValueFiles.isPointer(stored)) {
+                files.delete(stored);
+            }
+            wrote(metrics, key, value.length(), start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Helper method to retrieve a StringSet value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @return The value from shared preferences, or null if the value could not be read.
+     */
+    @NonNull
+    public Set<String> get(@NonNull String key, @NonNull Set<String> defaultValue) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        try {
+            Set<String> value = preferences.getStringSet(key, defaultValue);
+            read(metrics, key, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Helper method to write a StringSet value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public Boolean set(@NonNull String key, @NonNull Set<String> value) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putStringSet(key, value);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            index.update(preferences, key);
+            wrote(metrics, key, size(value), start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Helper method to write a StringSet value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param values
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public Boolean set(@NonNull String key, @NonNull String... values) {
+        try {
+            Set<String> _set = Common.Value.setOf(values);
+            return set(key, _set);
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        }
+    }
+
+    /**
+     * Helper method to retrieve a float value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     */
+    @NonNull
+    public Float get(@NonNull String key, @NonNull Float defaultValue) {
+        return getFloat(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a float value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public Boolean set(@NonNull String key, @NonNull Float value) {
+        return setFloat(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a float value from {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     * @since 0.6.0
+     */
+    public float getFloat(@NonNull String key, float defaultValue) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        try {
+            float value = preferences.getFloat(key, defaultValue);
+            read(metrics, key, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Helper method to write a float value to {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    public boolean setFloat(@NonNull String key, float value) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putFloat(key, value);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            index.update(preferences, key);
+            wrote(metrics, key, 4, start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Helper method to retrieve a long value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     */
+    @NonNull
+    public Long get(@NonNull String key, @NonNull Long defaultValue) {
+        return getLong(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a long value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public Boolean set(@NonNull String key, @NonNull Long value) {
+        return setLong(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a long value from {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     * @since 0.6.0
+     */
+    public long getLong(@NonNull String key, long defaultValue) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        try {
+            long value = preferences.getLong(key, defaultValue);
+            read(metrics, key, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Helper method to write a long value to {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    public boolean setLong(@NonNull String key, long value) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putLong(key, value);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            index.update(preferences, key);
+            wrote(metrics, key, 8, start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Helper method to retrieve an integer value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     */
+    @NonNull
+    public Integer get(@NonNull String key, @NonNull Integer defaultValue) {
+        return getInt(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write an integer value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public Boolean set(@NonNull String key, @NonNull Integer value) {
+        return setInt(key, value);
+    }
+
+    /**
+     * Helper method to retrieve an integer value from {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     * @since 0.6.0
+     */
+    public int getInt(@NonNull String key, int defaultValue) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        try {
+            int value = preferences.getInt(key, defaultValue);
+            read(metrics, key, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Helper method to write an integer value to {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    public boolean setInt(@NonNull String key, int value) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putInt(key, value);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            index.update(preferences, key);
+            wrote(metrics, key, 4, start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Helper method to retrieve a boolean value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     */
+    @NonNull
+    public Boolean get(@NonNull String key, @NonNull Boolean defaultValue) {
+        return getBoolean(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a boolean value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public Boolean set(@NonNull String key, @NonNull Boolean value) {
+        return setBoolean(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a boolean value from {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     * @since 0.6.0
+     */
+    public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        try {
+            boolean value = preferences.getBoolean(key, defaultValue);
+            read(metrics, key, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Helper method to write a boolean value to {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    public boolean setBoolean(@NonNull String key, boolean value) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putBoolean(key, value);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            index.update(preferences, key);
+            wrote(metrics, key, 1, start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Atomically add given delta to an integer value, treating absent value as 0.
+     * <p>
+     * Like other atomic updates, the new value is written using current
+     * write mode; in async mode use {@link #flush()} to wait until it is on disk.
+     *
+     * @param key   preference key
+     * @param delta value to add
+     * @return new value, or null if value could not be written, or accepted
+     * for background write in async mode
+     * @since 0.6.0
+     */
+    @Nullable
+    public Integer increment(@NonNull String key, int delta) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            int value = preferences.getInt(key, 0) + delta;
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putInt(key, value);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            if (!committed) {
+                return null;
+            }
+            index.update(preferences, key);
+            wrote(metrics, key, 4, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return null;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Atomically add given delta to a long value, treating absent value as 0.
+     * <p>
+     * Like other atomic updates, the new value is written using current
+     * write mode; in async mode use {@link #flush()} to wait until it is on disk.
+     *
+     * @param key   preference key
+     * @param delta value to add
+     * @return new value, or null if value could not be written, or accepted
+     * for background write in async mode
+     * @since 0.6.0
+     */
+    @Nullable
+    public Long increment(@NonNull String key, long delta) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            long value = preferences.getLong(key, 0L) + delta;
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putLong(key, value);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            if (!committed) {
+                return null;
+            }
+            index.update(preferences, key);
+            wrote(metrics, key, 8, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return null;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Atomically write an integer value if current value, with absent value
+     * treated as 0, equals given expected value.
+     *
+     * @param key      preference key
+     * @param expected expected current value
+     * @param update   new value
+     * @return true if value was expected and new value was written
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean compareAndSet(@NonNull String key, int expected, int update) {
+        locks.lock(key);
+        try {
+            return preferences.getInt(key, 0) == expected && setInt(key, update);
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Atomically write a long value if current value, with absent value
+     * treated as 0, equals given expected value.
+     *
+     * @param key      preference key
+     * @param expected expected current value
+     * @param update   new value
+     * @return true if value was expected and new value was written
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean compareAndSet(@NonNull String key, long expected, long update) {
+        locks.lock(key);
+        try {
+            return preferences.getLong(key, 0L) == expected && setLong(key, update);
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Atomically write a String value if current value equals given expected value.
+     *
+     * @param key      preference key
+     * @param expected expected current value, or null if key should have no value
+     * @param update   new value, or null to remove the key
+     * @return true if value was expected and new value was written
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean compareAndSet(@NonNull String key, @Nullable String expected,
+                                 @Nullable String update) {
+        locks.lock(key);
+        try {
+            String current = current(key);
+            if (expected == null ? current != null : !expected.equals(current)) {
+                return false;
+            }
+            return update == null ? remove(key) : set(key, update);
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Atomically replace an integer value with the value computed from it.
+     *
+     * @param key          preference key
+     * @param defaultValue value given to the updater if key has no value
+     * @param updater      compute new value
+     * @return new value, or null if key was removed or could not be updated
+     * @since 0.6.0
+     */
+    @Nullable
+    public Integer update(@NonNull String key, int defaultValue,
+                          @NonNull Updater<Integer> updater) {
+        locks.lock(key);
+        try {
+            Integer value = updater.update(preferences.getInt(key, defaultValue));
+            boolean written = value == null ? remove(key) : setInt(key, value);
+            return written ? value : null;
+        } catch (Exception e) {
+            failed(key, e);
+            return null;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Atomically replace a long value with the value computed from it.
+     *
+     * @param key          preference key
+     * @param defaultValue value given to the updater if key has no value
+     * @param updater      compute new value
+     * @return new value, or null if key was removed or could not be updated
+     * @since 0.6.0
+     */
+    @Nullable
+    public Long update(@NonNull String key, long defaultValue,
+                       @NonNull Updater<Long> updater) {
+        locks.lock(key);
+        try {
+            Long value = updater.update(preferences.getLong(key, defaultValue));
+            boolean written = value == null ? remove(key) : setLong(key, value);
+            return written ? value : null;
+        } catch (Exception e) {
+            failed(key, e);
+            return null;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Atomically replace a String value with the value computed from it.
+     *
+     * @param key          preference key
+     * @param defaultValue value given to the updater if key has no value
+     * @param updater      compute new value
+     * @return new value, or null if key was removed or could not be updated
+     * @since 0.6.0
+     */
+    @Nullable
+    public String update(@NonNull String key, @Nullable String defaultValue,
+                         @NonNull Updater<String> updater) {
+        locks.lock(key);
+        try {
+            String current = current(key);
+            String value = updater.update(current != null ? current : defaultValue);
+            boolean written = value == null ? remove(key) : set(key, value);
+            return written ? value : null;
+        } catch (Exception e) {
+            failed(key, e);
+            return null;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Obtain current String value, with offloaded and compressed value restored.
+     *
+     * @param key preference key
+     * @return current value, or null if key has no live value
+     * @throws IOException if value could not be read
+     * @since 0.6.0
+     */
+    @Nullable
+    private String current(@NonNull String key) throws IOException {
+        String stored = preferences.getString(key, null);
+        return stored == null || expired(key, stored) ? null : unpack(stored);
+    }
+
+    /**
+     * Add elements to a set, rewriting only the buckets holding them.
+     * <p>
+     * Element sets are stored in {@link #SET_BUCKETS} hashed buckets under
+     * derived keys, separately from values written with
+     * {@link #set(String, Set)}, so a change cost is proportional to the
+     * size of a bucket, not of the whole set.
+     *
+     * @param key      set key
+     * @param elements elements to add
+     * @return true if new elements were successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean addToSet(@NonNull String key, @NonNull String... elements) {
+        return modifySet(key, true, elements);
+    }
+
+    /**
+     * Remove elements from a set, rewriting only the buckets holding them.
+     *
+     * @param key      set key
+     * @param elements elements to remove
+     * @return true if elements were successfully removed from persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean removeFromSet(@NonNull String key, @NonNull String... elements) {
+        return modifySet(key, false, elements);
+    }
+
+    /**
+     * Check if a set contains given element, reading only its bucket.
+     *
+     * @param key     set key
+     * @param element element to check
+     * @return true if set contains the element
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean setContains(@NonNull String key, @NonNull String element) {
+        try {
+            Set<String> bucket = preferences.getStringSet(bucket(key, element), null);
+            return bucket != null && bucket.contains(element);
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        }
+    }
+
+    /**
+     * Obtain all elements of a set.
+     *
+     * @param key set key
+     * @return set elements
+     * @since 0.6.0
+     */
+    @NonNull
+    public Set<String> members(@NonNull String key) {
+        Set<String> members = new HashSet<String>();
+        try {
+            for (int i = 0; i < SET_BUCKETS; i++) {
+                Set<String> bucket = preferences.getStringSet(bucket(key, i), null);
+                if (bucket != null) {
+                    members.addAll(bucket);
+                }
+            }
+        } catch (Exception e) {
+            failed(key, e);
+        }
+        return members;
+    }
+
+    /**
+     * Remove all elements of a set in a single commit.
+     *
+     * @param key set key
+     * @return true if set was successfully removed from persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean clearSet(@NonNull String key) {
+        String[] buckets = new String[SET_BUCKETS];
+        for (int i = 0; i < SET_BUCKETS; i++) {
+            buckets[i] = bucket(key, i);
+        }
+        return remove(buckets);
+    }
+
+    /**
+     * Add or remove elements of a set in a single commit.
+     *
+     * @since 0.6.0
+     */
+    @NonNull
+    private Boolean modifySet(@NonNull String key, boolean add, @NonNull String... elements) {
+        Map<String, List<String>> buckets = new HashMap<String, List<String>>();
+        for (String element : elements) {
+            String bucket = bucket(key, element);
+            List<String> bucketElements = buckets.get(bucket);
+            if (bucketElements == null) {
+                bucketElements = new ArrayList<String>();
+                buckets.put(bucket, bucketElements);
+            }
+            bucketElements.add(element);
+        }
+        int[] held = locks.lock(buckets.keySet());
+        try {
+            List<String> changed = new ArrayList<String>();
+            SharedPreferences.Editor editor = preferences.edit();
+            for (Map.Entry<String, List<String>> entry : buckets.entrySet()) {
+                String bucket = entry.getKey();
+                Set<String> current = preferences.getStringSet(bucket, null);
+                Set<String> next = current != null
+                        ? new HashSet<String>(current) : new HashSet<String>();
+                boolean modified = add
+                        ? next.addAll(entry.getValue()) : next.removeAll(entry.getValue());
+                if (!modified) {
+                    continue;
+                }
+                if (next.isEmpty()) {
+                    editor.remove(bucket);
+                } else {
+                    editor.putStringSet(bucket, next);
+                }
+                changed.add(bucket);
+            }
+            if (changed.isEmpty()) {
+                return true;
+            }
+            boolean committed = commit(editor);
+            invalidate(changed);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    /**
+     * Obtain key of the set bucket holding given element.
+     *
+     * @since 0.6.0
+     */
+    @NonNull
+    private static String bucket(@NonNull String key, @NonNull String element) {
+        int hash = element.hashCode();
+        hash ^= (hash >>> 16);
+        return bucket(key, hash & (SET_BUCKETS - 1));
+    }
+
+    @NonNull
+    private static String bucket(@NonNull String key, int index) {
+        return SET_PREFIX + key + "#" + index;
+    }
+
+    /**
+     * Obtain a paged list stored in chunks of {@link PagedList#CHUNK_SIZE} items.
+     *
+     * @param key  list key
+     * @param type item type
+     * @return list handle
+     * @since 0.6.0
+     */
+    @NonNull
+    public <T> PagedList<T> list(@NonNull String key, @NonNull Class<T> type) {
+        return new PagedList<T>(this, key, type, PagedList.CHUNK_SIZE);
+    }
+
+    /**
+     * Obtain a paged list stored in chunks of given number of items.
+     * <p>
+     * Chunk size only applies to a list created afterwards; an existing list
+     * keep the chunk size it was created with.
+     *
+     * @param key       list key
+     * @param type      item type
+     * @param chunkSize number of items per chunk
+     * @return list handle
+     * @since 0.6.0
+     */
+    @NonNull
+    public <T> PagedList<T> list(@NonNull String key, @NonNull Class<T> type, int chunkSize) {
+        return new PagedList<T>(this, key, type, chunkSize);
+    }
+
+    /**
+     * Acquire write lock of given key.
+     *
+     * @since 0.6.0
+     */
+    void lock(@NonNull String key) {
+        locks.lock(key);
+    }
+
+    /**
+     * Release write lock of given key.
+     *
+     * @since 0.6.0
+     */
+    void unlock(@NonNull String key) {
+        locks.unlock(key);
+    }
+
+    /**
+     * Read a String value, with offloaded and compressed value restored.
+     *
+     * @param key preference key
+     * @return current value, or null if key has no string value
+     * @throws IOException if value could not be read
+     * @since 0.6.0
+     */
+    @Nullable
+    String read(@NonNull String key) throws IOException {
+        String stored = string(key);
+        return stored != null ? unpack(stored) : null;
+    }
+
+    /**
+     * Write String values and remove keys in a single commit.
+     * <p>
+     * Callers must hold the locks guarding given keys.
+     *
+     * @param values  new values keyed by preference key
+     * @param removed removed keys
+     * @return true if changes were successfully written
+     * @throws IOException if a value could not be offloaded
+     * @since 0.6.0
+     */
+    boolean write(@NonNull Map<String, String> values,
+                  @NonNull Collection<String> removed) throws IOException {
+        List<String> keys = new ArrayList<String>(values.keySet());
+        keys.addAll(removed);
+        Map<String, String> previous = pointers(keys);
+        List<String> written = new ArrayList<String>();
+        SharedPreferences.Editor editor = preferences.edit();
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            String stored = pack(value.getKey(), value.getValue());
+            editor.putString(value.getKey(), stored);
+            written.add(stored);
+        }
+        for (String key : removed) {
+            editor.remove(key);
+        }
+        boolean committed = commit(editor);
+        invalidate(keys);
+        if (committed) {
+            release(previous);
+        } else if (files != null) {
+            for (String stored : written) {
+                if (ValueFiles.isPointer(stored)) {
+                    files.delete(stored);
+                }
+            }
+        }
+        return committed;
+    }
+
+    /**
+     * Helper method to clear all {@link SharedPreferences}.
+     */
+    @NonNull
+    public Boolean clear() {
+        int[] held = locks.lockAll();
+        try {
+            Map<String, String> previous = files != null
+                    ? pointers(preferences.getAll().keySet())
+                    : Collections.<String, String>emptyMap();
+            SharedPreferences.Editor editor = preferences.edit().clear();
+            // schema version outlive clear, so migrations are not run again
+            int version = preferences.getInt(Preferences.SCHEMA_VERSION, 0);
+            if (version > 0) {
+                editor.putInt(Preferences.SCHEMA_VERSION, version);
+            }
+            boolean committed = commit(editor);
+            cache.invalidateAll();
+            index.reset();
+            if (committed) {
+                expiries.clear();
+                release(previous);
+            }
+            return committed;
+        } catch (Exception e) {
+            failed(null, e);
+            return false;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    /**
+     * Helper method to remove {@link SharedPreferences}.
+     */
+    @NonNull
+    public Boolean remove(@NonNull String... keys) {
+        int[] held = locks.lock(Arrays.asList(keys));
+        try {
+            Map<String, String> previous = pointers(Arrays.asList(keys));
+            List<String> dropped = new ArrayList<String>();
+            SharedPreferences.Editor editor = preferences.edit();
+            for (String key : keys) {
+                editor.remove(key);
+                if (permanent(editor, key)) {
+                    dropped.add(key);
+                }
+            }
+            boolean committed = commit(editor);
+            invalidate(Arrays.asList(keys));
+            for (String key : dropped) {
+                permanent(key, committed);
+            }
+            if (committed) {
+                release(previous);
+            }
+            return committed;
+        } catch (Exception e) {
+            failed(null, e);
+            return false;
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    /**
+     * Helper method to write a group of values to {@link SharedPreferences} in a single commit.
+     *
+     * @param action records writes into a {@link Batch}
+     * @return true if all new values were successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean edit(@NonNull Batch.Action action) {
+        try {
+            Batch batch = new Batch(new Batch.Router() {
+                @NonNull
+                @Override
+                public PreferenceStore route(@NonNull String key) {
+                    return PreferenceStore.this;
+                }
+
+                @NonNull
+                @Override
+                public Collection<PreferenceStore> stores() {
+                    return Collections.singleton(PreferenceStore.this);
+                }
+            });
+            action.run(batch);
+            return commit(batch);
+        } catch (Exception e) {
+            failed(null, e);
+            return false;
+        }
+    }
+
+    /**
+     * Commit all changes of given batch.
+     *
+     * @param batch recorded batch
+     * @return true if all stores changes were successfully written
+     * @since 0.6.0
+     */
+    static boolean commit(@NonNull Batch batch) {
+        Map<PreferenceStore, Batch.Changes> changes = batch.changes();
+        List<PreferenceStore> stores = sorted(changes.keySet());
+        List<int[]> held = new ArrayList<int[]>(stores.size());
+        try {
+            // hold written keys of all stores until every store committed, in
+            // the same order snapshots lock them, so no snapshot see part of a batch
+            for (PreferenceStore store : stores) {
+                Batch.Changes storeChanges = changes.get(store);
+                held.add(storeChanges.cleared
+                        ? store.locks.lockAll() : store.locks.lock(storeChanges.keys));
+            }
+            boolean committed = true;
+            for (PreferenceStore store : stores) {
+                committed &= store.commit(changes.get(store));
+            }
+            return committed;
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                stores.get(i).locks.unlock(held.get(i));
+            }
+        }
+    }
+
+    /**
+     * Run given task while all keys of given stores are locked, so its reads
+     * and the batch it commits are not interleaved with other writes.
+     *
+     * @param stores stores to lock
+     * @param task   task to run
+     * @return result of the task
+     * @throws Exception if task failed
+     * @since 0.6.0
+     */
+    static <T> T locked(@NonNull Collection<PreferenceStore> stores,
+                        @NonNull Callable<T> task) throws Exception {
+        List<PreferenceStore> sorted = sorted(stores);
+        List<int[]> held = new ArrayList<int[]>(sorted.size());
+        try {
+            for (PreferenceStore store : sorted) {
+                held.add(store.locks.lockAll());
+            }
+            return task.call();
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                sorted.get(i).locks.unlock(held.get(i));
+            }
+        }
+    }
+
+    /**
+     * Obtain given stores in name order, which is the order stores are
+     * locked in when more than one store is locked at once.
+     *
+     * @param stores stores to order
+     * @return stores sorted by name
+     * @since 0.6.0
+     */
+    @NonNull
+    private static List<PreferenceStore> sorted(@NonNull Collection<PreferenceStore> stores) {
+        List<PreferenceStore> sorted = new ArrayList<PreferenceStore>(stores);
+        Collections.sort(sorted, new Comparator<PreferenceStore>() {
+            @Override
+            public int compare(PreferenceStore store, PreferenceStore other) {
+                return store.name.compareTo(other.name);
+            }
+        });
+        return sorted;
+    }
+
+    /**
+     * Commit changes of this store collected by a batch.
+     *
+     * @param changes collected changes
+     * @return true if changes were successfully written
+     * @since 0.6.0
+     */
+    private boolean commit(@NonNull Batch.Changes changes) {
+        int[] held = changes.cleared ? locks.lockAll() : locks.lock(changes.keys);
+        boolean committed = false;
+        try {
+            Map<String, String> previous = files == null
+                    ? Collections.<String, String>emptyMap()
+                    : pointers(changes.cleared ? preferences.getAll().keySet() : changes.keys);
+            // pack only now, so no offload sweep can delete side files before
+            // they are referenced
+            for (Map.Entry<String, String> entry : changes.strings.entrySet()) {
+                String stored = pack(entry.getKey(), entry.getValue());
+                if (ValueFiles.isPointer(stored)) {
+                    changes.written.add(stored);
+                }
+                changes.editor.putString(entry.getKey(), stored);
+            }
+            List<String> dropped = new ArrayList<String>();
+            for (String key : changes.keys) {
+                if (permanent(changes.editor, key)) {
+                    dropped.add(key);
+                }
+            }
+            committed = commit(changes.editor);
+            for (String key : dropped) {
+                permanent(key, committed);
+            }
+            if (changes.cleared) {
+                cache.invalidateAll();
+                index.reset();
+            } else {
+                invalidate(changes.keys);
+            }
+            if (committed) {
+                if (changes.cleared) {
+                    expiries.clear();
+                }
+                release(previous);
+            }
+            return committed;
+        } catch (Exception e) {
+            failed(null, e);
+            return false;
+        } finally {
+            if (!committed && files != null) {
+                for (String stored : changes.written) {
+                    files.delete(stored);
+                }
+            }
+            locks.unlock(held);
+        }
+    }
+
+    /**
+     * Obtain new editor of underlying {@link SharedPreferences}.
+     *
+     * @return new editor
+     * @since 0.6.0
+     */
+    @NonNull
+    SharedPreferences.Editor editor() {
+        return preferences.edit();
+    }
+
+    /**
+     * Helper method to clear {@link SharedPreferences}.
+     */
+    @NonNull
+    public Boolean contains(@NonNull String key) {
+        try {
+            boolean contains = preferences.contains(key);
+            return contains && !expired(key, string(key));
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        }
+    }
+
+    /**
+     * Helper method to get all {@link SharedPreferences}.
+     * <p>
+     * Offloaded and compressed values are restored, and expired values skipped.
+     */
+    @Nullable
+    public Map<String, ?> getAll() {
+        try {
+            Map<String, ?> all = values();
+            return all;
+        } catch (Exception e) {
+            failed(null, e);
+            return null;
+        }
+    }
+
+    /**
+     * Obtain keys starting with given prefix, in ascending order.
+     * <p>
+     * Served from a sorted key index, so cost is proportional to matched keys.
+     *
+     * @param prefix key prefix
+     * @return matched keys
+     * @since 0.6.0
+     */
+    @NonNull
+    public List<String> keys(@NonNull String prefix) {
+        try {
+            return indexed(prefix);
+        } catch (Exception e) {
+            failed(null, e);
+            return new ArrayList<String>();
+        }
+    }
+
+    /**
+     * Obtain values of keys starting with given prefix, in ascending key order.
+     * <p>
+     * Unlike {@link #getAll()}, only matched values are copied.
+     *
+     * @param prefix key prefix
+     * @return matched values keyed by preference key
+     * @since 0.6.0
+     */
+    @NonNull
+    public Map<String, ?> getAll(@NonNull String prefix) {
+        return values(prefix);
+    }
+
+    /**
+     * Remove all keys starting with given prefix in a single commit.
+     *
+     * @param prefix key prefix
+     * @return true if matched keys were successfully removed
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean removePrefix(@NonNull String prefix) {
+        try {
+            List<String> keys = indexed(prefix);
+            return keys.isEmpty() || remove(keys.toArray(new String[keys.size()]));
+        } catch (Exception e) {
+            failed(null, e);
+            return false;
+        }
+    }
+
+    /**
+     * Capture a point-in-time view of given keys.
+     * <p>
+     * Writes to the keys are blocked only while they are read, and cost is
+     * proportional to number of given keys.
+     *
+     * @param keys preference keys
+     * @return immutable snapshot of given keys
+     * @since 0.6.0
+     */
+    @NonNull
+    public Snapshot snapshot(@NonNull String... keys) {
+        Map<PreferenceStore, Collection<String>> captured =
+                new HashMap<PreferenceStore, Collection<String>>();
+        captured.put(this, Arrays.asList(keys));
+        return snapshot(captured);
+    }
+
+    /**
+     * Capture a point-in-time view of all keys of this store.
+     *
+     * @return immutable snapshot of all keys
+     * @since 0.6.0
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        Map<PreferenceStore, Collection<String>> captured =
+                new HashMap<PreferenceStore, Collection<String>>();
+        captured.put(this, null);
+        return snapshot(captured);
+    }
+
+    /**
+     * Capture a point-in-time view of keys of given stores.
+     * <p>
+     * Stores are locked in name order, so concurrent snapshots never deadlock.
+     *
+     * @param keys captured keys per store, with null to capture all keys of a store
+     * @return immutable snapshot of captured keys
+     * @since 0.6.0
+     */
+    @NonNull
+    static Snapshot snapshot(@NonNull Map<PreferenceStore, Collection<String>> keys) {
+        List<PreferenceStore> stores = sorted(keys.keySet());
+        Map<String, Object> values = new HashMap<String, Object>();
+        List<int[]> held = new ArrayList<int[]>(stores.size());
+        try {
+            for (PreferenceStore store : stores) {
+                Collection<String> storeKeys = keys.get(store);
+                held.add(storeKeys == null ? store.locks.lockAll() : store.locks.lock(storeKeys));
+            }
+            for (PreferenceStore store : stores) {
+                Collection<String> storeKeys = keys.get(store);
+                values.putAll(storeKeys == null ? store.values() : store.values(storeKeys));
+            }
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                stores.get(i).locks.unlock(held.get(i));
+            }
+        }
+        return new Snapshot(values);
+    }
+
+    /**
+     * Obtain current values of all keys, with offloaded and compressed values restored.
+     *
+     * @return all values keyed by preference key
+     * @since 0.6.0
+     */
+    @NonNull
+    private Map<String, Object> values() {
+        Map<String, Object> values = new HashMap<String, Object>();
+        Map<String, ?> all = preferences.getAll();
+        if (all != null) {
+            for (Map.Entry<String, ?> entry : all.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null
+                        && !isReserved(entry.getKey())
+                        && !isExpired(entry.getKey(), entry.getValue())) {
+                    values.put(entry.getKey(), restore(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Helper method to write a generic value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public <T> Boolean set(@NonNull String key, @NonNull T value) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            String raw = encode(metrics, value);
+            Map<String, String> previous = pointers(Collections.singleton(key));
+            String stored = pack(key, raw);
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.putString(key, stored);
+            boolean dropped = permanent(editor, key);
+            boolean committed = commit(editor);
+            if (dropped) {
+                permanent(key, committed);
+            }
+            invalidate(Collections.singleton(key));
+            if (committed) {
+                release(previous);
+            } else if (files != null && ValueFiles.isPointer(stored)) {
+                files.delete(stored);
+            }
+            wrote(metrics, key, raw.length(), start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Write a String value which expire after given time to live.
+     * <p>
+     * Once expired, the value is read as absent and removed by the next sweep.
+     * Writing the key again without a time to live make it permanent.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @param ttl   time to live
+     * @param unit  unit of time to live
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public Boolean set(@NonNull String key, @NonNull String value, long ttl, @NonNull TimeUnit unit) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            boolean committed = expiring(key, value, ttl, unit);
+            wrote(metrics, key, value.length(), start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Write a generic value which expire after given time to live.
+     * <p>
+     * Once expired, the value is read as absent and removed by the next sweep.
+     * Writing the key again without a time to live make it permanent.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @param ttl   time to live
+     * @param unit  unit of time to live
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public <T> Boolean set(@NonNull String key, @NonNull T value, long ttl, @NonNull TimeUnit unit) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        locks.lock(key);
+        try {
+            String raw = encode(metrics, value);
+            boolean committed = expiring(key, raw, ttl, unit);
+            wrote(metrics, key, raw.length(), start);
+            return committed;
+        } catch (Exception e) {
+            failed(key, e);
+            return false;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    /**
+     * Remove expired values, and expiry times of values removed since, in a
+     * single commit.
+     *
+     * @return number of removed expired values
+     * @since 0.6.0
+     */
+    public int sweep() {
+        try {
+            loadExpiries();
+            List<String> due = new ArrayList<String>();
+            for (String key : expiries.keys()) {
+                if (expiries.isExpired(key) || !preferences.contains(key)) {
+                    due.add(key);
+                }
+            }
+            if (due.isEmpty()) {
+                return 0;
+            }
+            int removed = 0;
+            List<String> changed = new ArrayList<String>();
+            int[] held = locks.lock(due);
+            try {
+                List<String> expired = new ArrayList<String>();
+                List<String> swept = new ArrayList<String>();
+                SharedPreferences.Editor editor = preferences.edit();
+                for (String key : due) {
+                    boolean isStored = preferences.contains(key);
+                    boolean isExpired = isStored && expiries.isExpired(key);
+                    if (isStored && !isExpired) {
+                        // written again since
+                        continue;
+                    }
+                    if (isExpired) {
+                        editor.remove(key);
+                        expired.add(key);
+                        changed.add(key);
+                    }
+                    editor.remove(Expiries.companion(key));
+                    changed.add(Expiries.companion(key));
+                    swept.add(key);
+                }
+                Map<String, String> previous = pointers(expired);
+                boolean committed = commit(editor);
+                invalidate(changed);
+                if (committed) {
+                    // keep expiries of values still stored until their removal is written
+                    for (String key : swept) {
+                        expiries.remove(key);
+                    }
+                    release(previous);
+                    removed = expired.size();
+                }
+            } finally {
+                locks.unlock(held);
+            }
+            return removed;
+        } catch (Exception e) {
+            failed(null, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Write given raw value together with its expiry time.
+     * <p>
+     * Callers must hold the lock of given key.
+     *
+     * @return true if value was written
+     * @since 0.6.0
+     */
+    private boolean expiring(@NonNull String key, @NonNull String raw,
+                             long ttl, @NonNull TimeUnit unit) throws IOException {
+        long expiresAt = System.currentTimeMillis() + unit.toMillis(ttl);
+        String companion = Expiries.companion(key);
+        Map<String, String> previous = pointers(Collections.singleton(key));
+        String stored = pack(key, raw);
+        SharedPreferences.Editor editor = preferences.edit();
+        editor.putString(key, stored);
+        editor.putString(companion, Expiries.encode(expiresAt));
+        editor.putBoolean(Expiries.FLAG, true);
+        boolean committed = commit(editor);
+        invalidate(Arrays.asList(key, companion, Expiries.FLAG));
+        if (committed) {
+            expiries.put(key, expiresAt);
+            if (expiring.add(this)) {
+                startSweeper();
+            }
+            release(previous);
+        } else if (files != null && ValueFiles.isPointer(stored)) {
+            files.delete(stored);
+        }
+        return committed;
+    }
+
+    /**
+     * Drop expiry of given key in given editor, so a value written without a
+     * time to live is permanent.
+     * <p>
+     * Callers must hold the lock of given key, and pass the commit result to
+     * {@link #permanent(String, boolean)}.
+     *
+     * @param editor editor writing the key
+     * @param key    preference key
+     * @return true if editor drop an expiry
+     * @since 0.6.0
+     */
+    private boolean permanent(@NonNull SharedPreferences.Editor editor, @NonNull String key) {
+        if (!preferences.contains(Expiries.FLAG)) {
+            return false;
+        }
+        // load first, so a concurrent load never restore the dropped expiry
+        loadExpiries();
+        editor.remove(Expiries.companion(key));
+        return true;
+    }
+
+    /**
+     * Forget expiry of given key once the editor dropping it was committed.
+     *
+     * @param key       preference key
+     * @param committed true if editor was committed
+     * @since 0.6.0
+     */
+    private void permanent(@NonNull String key, boolean committed) {
+        index.update(preferences, Expiries.companion(key));
+        if (committed) {
+            expiries.remove(key);
+        }
+    }
+
+    /**
+     * Check if given stored value expired, queuing its removal if so.
+     *
+     * @param key    preference key
+     * @param stored stored value
+     * @return true if value should be read as absent
+     * @since 0.6.0
+     */
+    private boolean expired(@NonNull String key, @Nullable String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!expiries.isLoaded()) {
+            loadExpiries();
+        }
+        if (!expiries.isExpired(key)) {
+            return false;
+        }
+        if (evicting.compareAndSet(false, true)) {
+            writer().submit(new Runnable() {
+                @Override
+                public void run() {
+                    evicting.set(false);
+                    sweep();
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Check if given stored value, of any type, expired.
+     *
+     * @since 0.6.0
+     */
+    private boolean isExpired(@NonNull String key, @NonNull Object value) {
+        return value instanceof String && expired(key, (String) value);
+    }
+
+    /**
+     * Load expiry times from companion keys, once.
+     *
+     * @since 0.6.0
+     */
+    private void loadExpiries() {
+        synchronized (expiries) {
+            if (expiries.isLoaded()) {
+                return;
+            }
+            try {
+                // scan a copy of stored keys instead of the key index, so first
+                // reads never wait for write locks
+                if (preferences.contains(Expiries.FLAG)) {
+                    Map<String, ?> all = preferences.getAll();
+                    for (String companion : all.keySet()) {
+                        if (companion != null && companion.startsWith(Expiries.PREFIX)) {
+                            Object value = all.get(companion);
+                            expiries.restore(companion,
+                                    value instanceof String ? (String) value : null);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                failed(null, e);
+            }
+            expiries.loaded();
+        }
+        if (!expiries.isEmpty() && expiring.add(this)) {
+            startSweeper();
+        }
+    }
+
+    /**
+     * Obtain stored string value of given key.
+     *
+     * @param key preference key
+     * @return stored value, or null if key has no string value
+     * @since 0.6.0
+     */
+    @Nullable
+    private String string(@NonNull String key) {
+        try {
+            return preferences.getString(key, null);
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Helper method to retrieve a boolean value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param type
+     * @return The value from shared preferences, or the provided default.
+     */
+    @Nullable
+    public <T> T get(@NonNull String key, @NonNull Class<T> type) {
+        Metrics metrics = Metrics.current;
+        long start = start(metrics);
+        try {
+            String raw = preferences.getString(key, "");
+            if (expired(key, raw)) {
+                read(metrics, key, start);
+                return null;
+            }
+            boolean cacheable = cache.accepts(type);
+            if (cacheable) {
+                T cached = cache.get(key, type, raw);
+                if (cached != null) {
+                    read(metrics, key, start);
+                    return cached;
+                }
+            }
+            T value = decode(metrics, unpack(raw), type);
+            if (cacheable && value != null) {
+                cache.put(key, type, raw, value);
+            }
+            read(metrics, key, start);
+            return value;
+        } catch (Exception e) {
+            failed(key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Listen for {@link String} preference value changes
+     *
+     * @param owner        The LifecycleOwner which controls the observer
+     * @param key          preference key
+     * @param defaultValue default value
+     * @param observer     The observer that will receive the network status
+     * @since 0.1.0
+     */
+    @MainThread
+    public void observe(
+            @NonNull LifecycleOwner owner, @NonNull String key,
+            @NonNull String defaultValue, @NonNull Observer<String> observer) {
+        PreferenceLiveData<String> value = new PreferenceLiveData<String>(key, defaultValue) {
+            @Override
+            String getValue(@NonNull String key, String defaultValue) {
+                return get(key, defaultValue);
+            }
+        };
+        value.observe(owner, observer);
+    }
+
+    /**
+     * Listen for {@link Set} of {@link String} preference value changes
+     *
+     * @param owner        The LifecycleOwner which controls the observer
+     * @param key          preference key
+     * @param defaultValue default value
+     * @param observer     The observer that will receive the network status
+     * @since 0.1.0
+     */
+    @MainThread
+    public void observe(
+            @NonNull LifecycleOwner owner, @NonNull String key,
+            @NonNull Set<String> defaultValue, @NonNull Observer<Set<String>> observer) {
+        PreferenceLiveData<Set<String>> value = new PreferenceLiveData<Set<String>>(key, defaultValue) {
+            @Override
+            Set<String> getValue(@NonNull String key, Set<String> defaultValue) {
+                return get(key, defaultValue);
+            }
+        };
+        value.observe(owner, observer);
+    }
+
+    /**
+     * Listen for {@link Integer} preference value changes
+     *
+     * @param owner        The LifecycleOwner which controls the observer
+     * @param key          preference key
+     * @param defaultValue default value
+     * @param observer     The observer that will receive the network status
+     * @since 0.1.0
+     */
+    @MainThread
+    public void observe(
+            @NonNull LifecycleOwner owner, @NonNull String key,
+            @NonNull Integer defaultValue, @NonNull Observer<Integer> observer) {
+        PreferenceLiveData<Integer> value = new PreferenceLiveData<Integer>(key, defaultValue) {
+            @Override
+            Integer getValue(@NonNull String key, Integer defaultValue) {
+                return get(key, defaultValue);
+            }
+        };
+        value.observe(owner, observer);
+    }
+
+    /**
+     * Listen for {@link Float} preference value changes
+     *
+     * @param owner        The LifecycleOwner which controls the observer
+     * @param key          preference key
+     * @param defaultValue default value
+     * @param observer     The observer that will receive the network status
+     * @since 0.1.0
+     */
+    @MainThread
+    public void observe(
+            @NonNull LifecycleOwner owner, @NonNull String key,
+            @NonNull Float defaultValue, @NonNull Observer<Float> observer) {
+        PreferenceLiveData<Float> value = new PreferenceLiveData<Float>(key, defaultValue) {
+            @Override
+            Float getValue(@NonNull String key, Float defaultValue) {
+                return get(key, defaultValue);
+            }
+        };
+        value.observe(owner, observer);
+    }
+
+    /**
+     * Listen for {@link Long} preference value changes
+     *
+     * @param owner        The LifecycleOwner which controls the observer
+     * @param key          preference key
+     * @param defaultValue default value
+     * @param observer     The observer that will receive the network status
+     * @since 0.1.0
+     */
+    @MainThread
+    public void observe(
+            @NonNull LifecycleOwner owner, @NonNull String key,
+            @NonNull Long defaultValue, @NonNull Observer<Long> observer) {
+        PreferenceLiveData<Long> value = new PreferenceLiveData<Long>(key, defaultValue) {
+            @Override
+            Long getValue(@NonNull String key, Long defaultValue) {
+                return get(key, defaultValue);
+            }
+        };
+        value.observe(owner, observer);
+    }
+
+    /**
+     * Listen for {@link Boolean} preference value changes
+     *
+     * @param owner        The LifecycleOwner which controls the observer
+     * @param key          preference key
+     * @param defaultValue default value
+     * @param observer     The observer that will receive the network status
+     * @since 0.1.0
+     */
+    @MainThread
+    public void observe(
+            @NonNull LifecycleOwner owner, @NonNull String key,
+            @NonNull Boolean defaultValue, @NonNull Observer<Boolean> observer) {
+        PreferenceLiveData<Boolean> value = new PreferenceLiveData<Boolean>(key, defaultValue) {
+            @Override
+            Boolean getValue(@NonNull String key, Boolean defaultValue) {
+                return get(key, defaultValue);
+            }
+        };
+        value.observe(owner, observer);
+    }
+
+    /**
+     * Listen for {@link Boolean} preference value changes
+     *
+     * @param owner    The LifecycleOwner which controls the observer
+     * @param key      preference key
+     * @param observer The observer that will receive the network status
+     * @since 0.1.0
+     */
+    @MainThread
+    public <T> void observe(
+            @NonNull LifecycleOwner owner, @NonNull String key,
+            @NonNull final Class<T> type, @NonNull Observer<T> observer) {
+        PreferenceLiveData<T> value = new PreferenceLiveData<T>(key, null) {
+            @Override
+            T getValue(@NonNull String key, T defaultValue) {
+                return get(key, type);
+            }
+
+            @Override
+            Object getRaw(@NonNull String key) {
+                // offloaded and compressed values are compared without reading or inflating them
+                try {
+                    return preferences.getString(key, "");
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+        };
+        value.observe(owner, observer);
+    }
+
+    /**
+     * Listen for changes of given keys, receiving one {@link ChangeSet} per write
+     * with changed keys and current values of all given keys.
+     *
+     * @param owner    The LifecycleOwner which controls the observer
+     * @param keys     preference keys
+     * @param observer The observer that will receive change sets
+     * @since 0.6.0
+     */
+    @MainThread
+    public void observe(
+            @NonNull LifecycleOwner owner, @NonNull Collection<String> keys,
+            @NonNull Observer<ChangeSet> observer) {
+        Map<PreferenceStore, Collection<String>> observed =
+                new HashMap<PreferenceStore, Collection<String>>();
+        observed.put(this, new ArrayList<String>(keys));
+        new ChangeSetLiveData(observed).observe(owner, observer);
+    }
+
+    /**
+     * Listen for changes of keys starting with given prefix, receiving one
+     * {@link ChangeSet} per write with changed keys and current values of all
+     * keys with the prefix.
+     *
+     * @param owner    The LifecycleOwner which controls the observer
+     * @param prefix   preference key prefix
+     * @param observer The observer that will receive change sets
+     * @since 0.6.0
+     */
+    @MainThread
+    public void observePrefix(
+            @NonNull LifecycleOwner owner, @NonNull String prefix,
+            @NonNull Observer<ChangeSet> observer) {
+        new ChangeSetLiveData(prefix, Collections.singleton(this)).observe(owner, observer);
+    }
+
+    /**
+     * Obtain dispatcher of changes of this store
+     *
+     * @since 0.6.0
+     */
+    @NonNull
+    Dispatcher dispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * Obtain current values of given keys, with offloaded and compressed
+     * values restored.
+     *
+     * @param keys preference keys
+     * @return values of keys which have a value, in order of given keys
+     * @since 0.6.0
+     */
+    @NonNull
+    Map<String, Object> values(@NonNull Collection<String> keys) {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        try {
+            for (String key : keys) {
+                Object value = raw(key);
+                if (value != null && !isExpired(key, value)) {
+                    values.put(key, restore(key, value));
+                }
+            }
+        } catch (Exception e) {
+            failed(null, e);
+        }
+        return values;
+    }
+
+    /**
+     * Obtain current values of keys starting with given prefix, with offloaded
+     * and compressed values restored.
+     *
+     * @param prefix preference key prefix
+     * @return values of keys with the prefix, in ascending key order
+     * @since 0.6.0
+     */
+    @NonNull
+    Map<String, Object> values(@NonNull String prefix) {
+        try {
+            return values(indexed(prefix));
+        } catch (Exception e) {
+            failed(null, e);
+            return new LinkedHashMap<String, Object>();
+        }
+    }
+
+    /**
+     * Check if given key is used internally, such as expiry companions,
+     * set buckets, list chunks and schema version.
+     *
+     * @param key preference key
+     * @return true if key is hidden from reads of all or prefixed keys
+     * @since 0.6.0
+     */
+    static boolean isReserved(@NonNull String key) {
+        return key.startsWith(RESERVED_PREFIX);
+    }
+
+    /**
+     * Obtain keys starting with given prefix from the key index, loading the
+     * index on first use.
+     *
+     * @param prefix preference key prefix
+     * @return matched keys, in ascending order
+     * @since 0.6.0
+     */
+    @NonNull
+    private List<String> indexed(@NonNull String prefix) {
+        if (!index.isLoaded()) {
+            int[] held = locks.lockAll();
+            try {
+                if (!index.isLoaded()) {
+                    index.load(preferences);
+                }
+            } finally {
+                locks.unlock(held);
+            }
+        }
+        return index.keys(prefix);
+    }
+
+    /**
+     * Obtain stored value of given key, without copying all values.
+     *
+     * @param key preference key
+     * @return stored value, or null if key has no value
+     * @since 0.6.0
+     */
+    @Nullable
+    private Object raw(@NonNull String key) {
+        if (preferences instanceof MemorySharedPreferences) {
+            return ((MemorySharedPreferences) preferences).values.get(key);
+        }
+        if (!preferences.contains(key)) {
+            return null;
+        }
+        // SharedPreferences has no untyped getter, so probe stored type; most values are strings
+        try {
+            return preferences.getString(key, null);
+        } catch (ClassCastException e) {
+            // not a string value
+        }
+        try {
+            return preferences.getStringSet(key, null);
+        } catch (ClassCastException e) {
+            // not a string set value
+        }
+        try {
+            return preferences.getInt(key, 0);
+        } catch (ClassCastException e) {
+            // not an integer value
+        }
+        try {
+            return preferences.getLong(key, 0L);
+        } catch (ClassCastException e) {
+            // not a long value
+        }
+        try {
+            return preferences.getFloat(key, 0F);
+        } catch (ClassCastException e) {
+            // not a float value
+        }
+        return preferences.getBoolean(key, false);
+    }
+
+    @NonNull
+    private Object restore(@NonNull String key, @NonNull Object value) {
+        if (!(value instanceof String)) {
+            return value;
+        }
+        try {
+            String raw = unpack((String) value);
+            return raw != null ? raw : value;
+        } catch (Exception e) {
+            failed(key, e);
+            return value;
+        }
+    }
+
+    /**
+     * A {@see LiveData} class which subscribe to key changes from the shared {@link Dispatcher}
+     *
+     * @since 0.1.0
+     */
+    private abstract class PreferenceLiveData<T> extends LiveData<T>
+            implements Dispatcher.Subscriber {
+        // refs
+        private String key;
+        private T defaultValue;
+
+        // distinct emissions state
+        private final AtomicBoolean pending = new AtomicBoolean(false);
+        private boolean delivered = false;
+        private Object lastRaw;
+        private final Runnable deliver = new Runnable() {
+            @Override
+            public void run() {
+                pending.set(false);
+                deliverDistinct();
+            }
+        };
+
+        public PreferenceLiveData(@NonNull String key, T defaultValue) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+        }
+
+        abstract T getValue(@NonNull String key, T defaultValue);
+
+        /**
+         * Obtain cheap raw representation of current value, used to skip
+         * decoding of unchanged values.
+         *
+         * @param key preference key
+         * @return raw value, or null if value has no cheaper representation
+         */
+        @Nullable
+        Object getRaw(@NonNull String key) {
+            return null;
+        }
+
+        @Override
+        public void onChanged(@Nullable String key) {
+            emit();
+        }
+
+        @Override
+        protected void onActive() {
+            super.onActive();
+            emit();
+            dispatcher.subscribe(key, this);
+        }
+
+        private void emit() {
+            if (!distinct) {
+                postValue(getValue(key, defaultValue));
+            } else if (pending.compareAndSet(false, true)) {
+                main.post(deliver);
+            }
+        }
+
+        @MainThread
+        private void deliverDistinct() {
+            Object raw = getRaw(key);
+            if (delivered && raw != null && raw.equals(lastRaw)) {
+                return;
+            }
+            T value = getValue(key, defaultValue);
+            T current = getValue();
+            boolean changed = !delivered
+                    || (value == null ? current != null : !value.equals(current));
+            delivered = true;
+            lastRaw = raw;
+            if (changed) {
+                setValue(value);
+            }
+        }
+
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            dispatcher.unsubscribe(key, this);
+        }
+    }
+
+}
\ No newline at end of file
@@ -2,348 +2,1544 @@ package com.github.lykmapipo.preference;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.preference.PreferenceManager;
 
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.LifecycleOwner;
-import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Observer;
 
-import com.github.lykmapipo.common.Common;
 import com.github.lykmapipo.common.provider.Provider;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A pack of helpful getter and setter methods for read and write to {@link SharedPreferences}.
+ * <p>
+ * Keys are stored in the default {@link SharedPreferences} file, unless they
+ * are routed to a named {@link PreferenceStore} using {@link #shard(String, String)}
+ * or {@link #shard(int)}.
  *
  * @author lally elias <lallyelias87@gmail.com>
- * @version 0.5.0
+ * @version 0.6.0
  * @since 0.1.0
  */
 public class Preferences {
     /**
-     * Valid instance of {@link SharedPreferences} created once during
+     * Prefix of names of stores used by hash sharding.
+     *
+     * @since 0.6.0
+     */
+    static final String SHARD_PREFIX = "preferences_shard_";
+
+    /**
+     * Suffix of default store name, appended to application package name.
+     *
+     * @since 0.6.0
+     */
+    private static final String DEFAULT_SUFFIX = "_preferences";
+
+    /**
+     * Key of persisted schema version, written by {@link #migrate()}.
+     *
+     * @since 0.6.0
+     */
+    public static final String SCHEMA_VERSION = "preferences.schema.version";
+
+    /**
+     * Store used when {@link Preferences} is not initialized, which fail all
+     * operations the same way a disposed instance does.
+     *
+     * @since 0.6.0
+     */
+    private static final PreferenceStore detached = new PreferenceStore("", null);
+
+    /**
+     * Valid application {@link Context} captured during {@link Preferences} initialization.
+     *
+     * @since 0.6.0
+     */
+    private static volatile Context context;
+
+    /**
+     * Valid default {@link PreferenceStore} created once during
      * {@link Preferences} initialization.
      *
-     * @since 0.1.0
+     * @since 0.6.0
+     */
+    private static volatile PreferenceStore defaults;
+
+    /**
+     * Latch released once background loading of default store finish,
+     * or null if not loading
+     *
+     * @since 0.6.0
+     */
+    private static volatile CountDownLatch loading;
+
+    /**
+     * Result of last background loading
+     *
+     * @since 0.6.0
+     */
+    private static Future<Boolean> preloading;
+
+    /**
+     * Number of times {@link Preferences} was disposed, so background loading
+     * started before a dispose never publish its stores
+     *
+     * @since 0.6.0
+     */
+    private static volatile int generation = 0;
+
+    /**
+     * Registered migrations keyed by schema version
+     *
+     * @since 0.6.0
+     */
+    private static final ConcurrentSkipListMap<Integer, Migration> migrations =
+            new ConcurrentSkipListMap<Integer, Migration>();
+
+    /**
+     * Serialize migration runs
+     *
+     * @since 0.6.0
+     */
+    private static final Object migrating = new Object();
+
+    /**
+     * Maximum nanoseconds to wait on access for background loading
+     *
+     * @since 0.6.0
+     */
+    private static volatile long loadTimeout = 0;
+
+    /**
+     * Opened named stores
+     *
+     * @since 0.6.0
+     */
+    private static final ConcurrentMap<String, PreferenceStore> stores =
+            new ConcurrentHashMap<String, PreferenceStore>();
+
+    /**
+     * Store names keyed by routed key prefix
+     *
+     * @since 0.6.0
+     */
+    private static final ConcurrentMap<String, String> prefixes =
+            new ConcurrentHashMap<String, String>();
+
+    /**
+     * Number of stores un-prefixed keys are hash sharded into
+     *
+     * @since 0.6.0
+     */
+    private static volatile int shards = 0;
+
+    /**
+     * Precomputed routing of current prefixes and shards
+     *
+     * @since 0.6.0
+     */
+    private static volatile Routing routing = new Routing(prefixes, 0);
+
+    /**
+     * Storage engine used to open stores
+     *
+     * @since 0.6.0
+     */
+    private static volatile Engine engine = new XmlEngine();
+
+    /**
+     * Flag whether stores persist writes in background
+     *
+     * @since 0.6.0
+     */
+    private static volatile boolean async = false;
+
+    /**
+     * Flag whether stores deliver distinct emissions to observers
+     *
+     * @since 0.6.0
+     */
+    private static volatile boolean distinct = false;
+
+    /**
+     * Types whose decoded values are cached by stores
+     *
+     * @since 0.6.0
+     */
+    private static final Set<Class<?>> cacheTypes = new LinkedHashSet<Class<?>>();
+
+    /**
+     * Maximum number of decoded values cached per store
+     *
+     * @since 0.6.0
+     */
+    private static int cacheSize = PreferenceStore.CACHE_SIZE;
+
+    /**
+     * Value length above which values are offloaded to side files, applied to new stores
+     *
+     * @since 0.6.0
+     */
+    private static int offloadThreshold = 0;
+
+    /**
+     * Value length above which values are compressed, applied to new stores
+     *
+     * @since 0.6.0
+     */
+    private static int compressThreshold = 0;
+
+    /**
+     * Keys whose values are always compressed, applied to new stores
+     *
+     * @since 0.6.0
+     */
+    private static final Set<String> compressKeys = new LinkedHashSet<String>();
+
+    /**
+     * Route keys of the default key space to owning store
+     *
+     * @since 0.6.0
+     */
+    private static final Batch.Router router = new Batch.Router() {
+        @NonNull
+        @Override
+        public PreferenceStore route(@NonNull String key) {
+            return Preferences.route(key);
+        }
+
+        @NonNull
+        @Override
+        public Collection<PreferenceStore> stores() {
+            return Preferences.routes();
+        }
+    };
+
+    private Preferences() {
+    }
+
+    /**
+     * Initialize and create new {@link Preferences} instance if not exists
+     *
+     * @param provider {@link Context}
+     * @since 0.5.0
+     */
+    public static synchronized void of(@NonNull Provider provider) {
+        if (defaults == null && loading == null) {
+            context = provider.getApplicationContext();
+            // same file as PreferenceManager.getDefaultSharedPreferences
+            String name = context.getPackageName() + DEFAULT_SUFFIX;
+            SharedPreferences preferences = engine.open(context, name);
+            defaults = configure(new PreferenceStore(name, preferences, files(context, name)));
+        }
+    }
+
+    /**
+     * Initialize {@link Preferences} in background, loading default store and
+     * given named stores off the calling thread.
+     * <p>
+     * Until the default store is loaded, reads and writes wait up to given
+     * timeout for it, then behave as if {@link Preferences} is not initialized:
+     * reads return provided defaults and writes return false. Use a zero
+     * timeout to never wait. Named stores can be opened right away, and calls
+     * to {@link #of(Provider)} made while loading are ignored.
+     *
+     * @param provider {@link Context} provider
+     * @param timeout  maximum time to wait for loading on access
+     * @param unit     unit of timeout
+     * @param names    named stores to load after the default store
+     * @return {@link Future} which complete with true once all stores are loaded
+     * @since 0.6.0
+     */
+    @NonNull
+    public static synchronized Future<Boolean> preload(
+            @NonNull Provider provider, long timeout, @NonNull TimeUnit unit,
+            @NonNull final String... names) {
+        if (preloading != null && (loading != null || defaults != null)) {
+            return preloading;
+        }
+        final Context applicationContext = provider.getApplicationContext();
+        // named stores can be opened while default store is loading
+        context = applicationContext;
+        final CountDownLatch latch = new CountDownLatch(1);
+        final int started = generation;
+        loadTimeout = unit.toNanos(timeout);
+        loading = latch;
+        FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                try {
+                    load(applicationContext, started);
+                } finally {
+                    synchronized (Preferences.class) {
+                        if (loading == latch) {
+                            loading = null;
+                        }
+                    }
+                    latch.countDown();
+                }
+                for (String name : names) {
+                    PreferenceStore store;
+                    synchronized (Preferences.class) {
+                        if (generation != started) {
+                            return false;
+                        }
+                        store = store(name);
+                    }
+                    store.contains("");
+                }
+                return generation == started && defaults != null;
+            }
+        });
+        Thread thread = new Thread(task, "preferences-preload");
+        thread.setDaemon(true);
+        thread.start();
+        preloading = task;
+        return task;
+    }
+
+    /**
+     * Check if default store is loaded and ready for use.
+     *
+     * @return true if ready
+     * @since 0.6.0
+     */
+    public static boolean isReady() {
+        return defaults != null;
+    }
+
+    /**
+     * Wait for default store to be loaded.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of timeout
+     * @return true if default store is ready
+     * @throws InterruptedException if interrupted while waiting
+     * @since 0.6.0
+     */
+    public static boolean await(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        CountDownLatch latch = loading;
+        if (latch != null) {
+            latch.await(timeout, unit);
+        }
+        return defaults != null;
+    }
+
+    /**
+     * Register a migration step which upgrade stored preferences to given
+     * schema version.
+     *
+     * @param version   schema version reached by the step, starting at 1
+     * @param migration migration step
+     * @since 0.6.0
+     */
+    public static void migration(int version, @NonNull Migration migration) {
+        if (version < 1) {
+            throw new IllegalArgumentException("Schema version must start at 1");
+        }
+        migrations.put(version, migration);
+    }
+
+    /**
+     * Drop all registered migrations, keeping persisted schema version.
+     *
+     * @since 0.6.0
+     */
+    static void unmigrate() {
+        synchronized (migrating) {
+            migrations.clear();
+        }
+    }
+
+    /**
+     * Obtain persisted schema version.
+     *
+     * @return schema version, or 0 if never migrated
+     * @since 0.6.0
+     */
+    public static int version() {
+        return getInt(SCHEMA_VERSION, 0);
+    }
+
+    /**
+     * Run, on a background thread, all registered migrations newer than the
+     * persisted schema version.
+     * <p>
+     * Steps run in version order and their changes, together with the new
+     * schema version, are written in a single batch. If a step fail nothing
+     * is written, so migration is retried on next run. Writes to the default
+     * key space wait until migration is written.
+     *
+     * @return {@link Future} which complete with true once preferences are
+     * at the latest schema version
+     * @since 0.6.0
+     */
+    @NonNull
+    public static Future<Boolean> migrate() {
+        FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                synchronized (migrating) {
+                    return runMigrations();
+                }
+            }
+        });
+        Thread thread = new Thread(task, "preferences-migrate");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    /**
+     * Run pending migrations in a single batch.
+     *
+     * @return true if preferences are at the latest schema version
+     * @since 0.6.0
+     */
+    private static boolean runMigrations() {
+        if (migrations.tailMap(version(), false).isEmpty()) {
+            return true;
+        }
+        try {
+            // hold all routed stores from first read to commit, so steps never
+            // rewrite values changed meanwhile
+            return PreferenceStore.locked(routes(), new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    int current = version();
+                    final Migrator migrator = new Migrator();
+                    int latest = current;
+                    for (Map.Entry<Integer, Migration> step
+                            : migrations.tailMap(current, false).entrySet()) {
+                        step.getValue().migrate(migrator);
+                        latest = step.getKey();
+                    }
+                    if (latest == current) {
+                        return true;
+                    }
+                    migrator.set(SCHEMA_VERSION, latest);
+                    return edit(new Batch.Action() {
+                        @Override
+                        public void run(@NonNull Batch batch) {
+                            migrator.apply(batch);
+                        }
+                    });
+                }
+            });
+        } catch (Exception e) {
+            Metrics metrics = Metrics.current;
+            if (metrics != null) {
+                metrics.onError("", SCHEMA_VERSION, e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Open and fully load default store, then publish it unless
+     * {@link Preferences} was disposed meanwhile.
+     *
+     * @param applicationContext application {@link Context}
+     * @param started            generation loading started in
+     * @since 0.6.0
+     */
+    private static void load(@NonNull Context applicationContext, int started) {
+        String name = applicationContext.getPackageName() + DEFAULT_SUFFIX;
+        SharedPreferences preferences = engine.open(applicationContext, name);
+        // block until values are loaded from disk
+        preferences.contains("");
+        synchronized (Preferences.class) {
+            if (defaults == null && generation == started) {
+                defaults = configure(new PreferenceStore(
+                        name, preferences, files(applicationContext, name)));
+            }
+        }
+    }
+
+    /**
+     * Obtain default store, waiting for background loading if in progress.
+     *
+     * @return default store, or null if not initialized
+     * @since 0.6.0
+     */
+    @Nullable
+    private static PreferenceStore defaults() {
+        PreferenceStore store = defaults;
+        CountDownLatch latch = loading;
+        if (store != null || latch == null || loadTimeout <= 0) {
+            return store;
+        }
+        try {
+            latch.await(loadTimeout, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return defaults;
+    }
+
+    /**
+     * Dispose existing {@link Preferences} instance and release resources
+     *
+     * @since 0.4.0
+     */
+    public static synchronized void dispose() {
+        if (defaults != null) {
+            defaults.dispose();
+            defaults = null;
+        }
+        for (PreferenceStore store : stores.values()) {
+            store.dispose();
+        }
+        stores.clear();
+        // drop resolved stores
+        routing = new Routing(prefixes, shards);
+        context = null;
+        preloading = null;
+        generation++;
+        // release accesses waiting on an abandoned load
+        CountDownLatch latch = loading;
+        loading = null;
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Obtain named {@link PreferenceStore}, backed by its own {@link SharedPreferences} file.
+     * <p>
+     * Each store is written and locked independently, so writes to a small
+     * store never rewrite values of other stores.
+     *
+     * @param name store name
+     * @return named store
+     * @throws IllegalStateException if {@link Preferences} is not initialized
+     * @since 0.6.0
+     */
+    @NonNull
+    public static PreferenceStore store(@NonNull String name) {
+        return store(name, engine);
+    }
+
+    /**
+     * Obtain named {@link PreferenceStore}, backed by given storage engine.
+     * <p>
+     * Engine is only used when the store is opened for the first time.
+     *
+     * @param name   store name
+     * @param engine storage engine of the store
+     * @return named store
+     * @throws IllegalStateException if {@link Preferences} is not initialized
+     * @since 0.6.0
+     */
+    @NonNull
+    public static PreferenceStore store(@NonNull String name, @NonNull Engine engine) {
+        PreferenceStore store = stores.get(name);
+        if (store != null) {
+            return store;
+        }
+        synchronized (Preferences.class) {
+            store = stores.get(name);
+            if (store == null) {
+                if (context == null) {
+                    throw new IllegalStateException("Preferences not initialized");
+                }
+                SharedPreferences preferences = engine.open(context, name);
+                store = configure(new PreferenceStore(name, preferences, files(context, name)));
+                stores.put(name, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Use given storage engine for default and named stores opened afterwards.
+     * <p>
+     * Set engine before {@link #of(Provider)} for the default store to use it.
+     *
+     * @param engine storage engine
+     * @since 0.6.0
+     */
+    public static void engine(@NonNull Engine engine) {
+        Preferences.engine = engine;
+    }
+
+    /**
+     * Route all keys starting with given prefix to named store.
+     * <p>
+     * When prefixes overlap, the longest matching prefix wins.
+     *
+     * @param prefix key prefix
+     * @param store  name of the store which own prefixed keys
+     * @since 0.6.0
+     */
+    public static synchronized void shard(@NonNull String prefix, @NonNull String store) {
+        prefixes.put(prefix, store);
+        routing = new Routing(prefixes, shards);
+    }
+
+    /**
+     * Stop routing keys starting with given prefix to a named store.
+     * <p>
+     * Values already written to the named store stay there, and keys with
+     * the prefix are routed as if the prefix was never registered.
+     *
+     * @param prefix key prefix
+     * @since 0.6.0
+     */
+    public static synchronized void unshard(@NonNull String prefix) {
+        if (prefixes.remove(prefix) != null) {
+            routing = new Routing(prefixes, shards);
+        }
+    }
+
+    /**
+     * Spread keys not routed by prefix across given number of stores, by key hash.
+     * <p>
+     * Number of shards should be fixed for the lifetime of an application,
+     * since changing it move keys to different stores.
+     *
+     * @param count number of shards, or 0 to keep keys in the default store
+     * @since 0.6.0
+     */
+    public static synchronized void shard(int count) {
+        shards = count;
+        routing = new Routing(prefixes, shards);
+    }
+
+    /**
+     * Enable or disable asynchronous writes.
+     * <p>
+     * When enabled, all set, remove and clear helpers update in-memory values
+     * immediately and persist them to disk in background. They then return
+     * true once values are visible to readers; use {@link #flush()} to wait
+     * until pending writes are on disk.
+     *
+     * @param async true to persist writes in background
+     * @since 0.6.0
+     */
+    public static synchronized void async(@NonNull Boolean async) {
+        Preferences.async = async;
+        for (PreferenceStore store : opened()) {
+            store.async(async);
+        }
+    }
+
+    /**
+     * Enable or disable distinct emissions to observers.
+     * <p>
+     * When enabled, a burst of changes to an observed key is delivered as a
+     * single emission on the main thread, and no emission is delivered when
+     * the value is equal to the last delivered one.
+     *
+     * @param distinct true to coalesce and deduplicate emissions
+     * @since 0.6.0
+     */
+    public static synchronized void distinct(@NonNull Boolean distinct) {
+        Preferences.distinct = distinct;
+        for (PreferenceStore store : opened()) {
+            store.distinct(distinct);
+        }
+    }
+
+    /**
+     * Wait for all pending asynchronous writes to be persisted.
+     * <p>
+     * Returned {@link Future} completes with true once all writes issued before
+     * this call are on disk, or false if they could not be written.
+     *
+     * @return {@link Future} of persistence result
+     * @since 0.6.0
+     */
+    @NonNull
+    public static Future<Boolean> flush() {
+        final List<PreferenceStore> targets = opened();
+        return PreferenceStore.writer().submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                boolean synced = !targets.isEmpty();
+                for (PreferenceStore store : targets) {
+                    synced &= store.sync();
+                }
+                return synced;
+            }
+        });
+    }
+
+    /**
+     * Enable caching of decoded values of given types.
+     * <p>
+     * Cached values are shared by all callers of {@link #get(String, Class)},
+     * so only immutable types, whose instance fields are all final and
+     * immutable, can be registered.
+     *
+     * @param types value types to cache
+     * @throws IllegalArgumentException if a type is not immutable
+     * @since 0.6.0
+     */
+    public static synchronized void cache(@NonNull Class<?>... types) {
+        for (Class<?> type : types) {
+            ValueCache.checkImmutable(type);
+        }
+        Collections.addAll(cacheTypes, types);
+        for (PreferenceStore store : opened()) {
+            store.cache(types);
+        }
+    }
+
+    /**
+     * Stop caching decoded values of all types.
+     *
+     * @since 0.6.0
+     */
+    static synchronized void uncache() {
+        cacheTypes.clear();
+        for (PreferenceStore store : opened()) {
+            store.uncache();
+        }
+    }
+
+    /**
+     * Change maximum number of cached decoded values.
+     *
+     * @param maxSize maximum number of cached values
+     * @since 0.6.0
+     */
+    public static synchronized void cache(int maxSize) {
+        cacheSize = maxSize;
+        for (PreferenceStore store : opened()) {
+            store.cache(maxSize);
+        }
+    }
+
+    /**
+     * Store values of given type using given codec, instead of json.
+     *
+     * @param type  value type
+     * @param codec value codec
+     * @since 0.6.0
+     */
+    public static <T> void codec(@NonNull Class<T> type, @NonNull Codec<T> codec) {
+        Codecs.register(type, codec);
+    }
+
+    /**
+     * Store values of all types as json again.
+     *
+     * @since 0.6.0
+     */
+    static void uncodec() {
+        Codecs.unregisterAll();
+    }
+
+    /**
+     * Install listener of operations timings, sizes and failures.
+     *
+     * @param metrics metrics listener, or null to disable metrics
+     * @since 0.6.0
+     */
+    public static void metrics(@Nullable Metrics metrics) {
+        Metrics.current = metrics;
+    }
+
+    /**
+     * Compress string and generic values above given length.
+     * <p>
+     * Values are only stored compressed when smaller, and values stored
+     * before compression was enabled are still read as is.
+     *
+     * @param threshold value length above which values are compressed, or zero to disable
+     * @since 0.6.0
+     */
+    public static synchronized void compress(int threshold) {
+        compressThreshold = threshold;
+        for (PreferenceStore store : opened()) {
+            store.compress(threshold);
+        }
+    }
+
+    /**
+     * Compress string and generic values of given keys regardless of length.
+     *
+     * @param keys preference keys
+     * @since 0.6.0
+     */
+    public static synchronized void compress(@NonNull String... keys) {
+        Collections.addAll(compressKeys, keys);
+        for (PreferenceStore store : opened()) {
+            store.compress(keys);
+        }
+    }
+
+    /**
+     * Store values above given length in side files, keeping only a small
+     * pointer in preferences.
+     * <p>
+     * Offloaded values are read lazily by {@link #get(String, Class)}, and their
+     * files deleted once keys are overwritten, removed or cleared.
+     *
+     * @param threshold value length above which values are offloaded, or zero to disable
+     * @since 0.6.0
+     */
+    public static synchronized void offload(int threshold) {
+        offloadThreshold = threshold;
+        for (PreferenceStore store : opened()) {
+            store.offload(threshold);
+        }
+    }
+
+    /**
+     * Obtain directory holding offloaded values of named store.
+     *
+     * @param context application {@link Context}
+     * @param name    store name
+     * @return offloaded values directory
+     * @since 0.6.0
+     */
+    @NonNull
+    private static File files(@NonNull Context context, @NonNull String name) {
+        return new File(new File(context.getFilesDir(), LogEngine.DIRECTORY), name + ".values");
+    }
+
+    /**
+     * Apply global settings to newly created store.
+     *
+     * @param store new store
+     * @return configured store
+     * @since 0.6.0
+     */
+    @NonNull
+    private static PreferenceStore configure(@NonNull PreferenceStore store) {
+        store.async(async);
+        store.distinct(distinct);
+        store.cache(cacheSize);
+        store.cache(cacheTypes.toArray(new Class<?>[0]));
+        store.compress(compressThreshold);
+        store.compress(compressKeys.toArray(new String[0]));
+        if (offloadThreshold > 0) {
+            store.offload(offloadThreshold);
+        }
+        return store;
+    }
+
+    /**
+     * Obtain store which own given key.
+     *
+     * @param key preference key
+     * @return owning store
+     * @since 0.6.0
+     */
+    @NonNull
+    static PreferenceStore route(@NonNull String key) {
+        PreferenceStore store = defaults();
+        if (store == null) {
+            return detached;
+        }
+        PreferenceStore routed = routing.route(key);
+        return routed != null ? routed : store;
+    }
+
+    /**
+     * Obtain all stores of the default key space.
+     *
+     * @return default store, prefix stores and hash shards
+     * @since 0.6.0
+     */
+    @NonNull
+    static Collection<PreferenceStore> routes() {
+        Set<PreferenceStore> routes = new LinkedHashSet<PreferenceStore>();
+        PreferenceStore store = defaults();
+        if (store == null) {
+            routes.add(detached);
+            return routes;
+        }
+        routes.add(store);
+        routing.routes(routes);
+        return routes;
+    }
+
+    /**
+     * Obtain all opened stores.
+     *
+     * @return default and named opened stores
+     * @since 0.6.0
+     */
+    @NonNull
+    private static List<PreferenceStore> opened() {
+        List<PreferenceStore> opened = new ArrayList<PreferenceStore>();
+        PreferenceStore store = defaults;
+        if (store != null) {
+            opened.add(store);
+        }
+        opened.addAll(stores.values());
+        return opened;
+    }
+
+    /**
+     * Helper method to retrieve a String value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @return The value from shared preferences, or null if the value could not be read.
+     */
+    @NonNull
+    public static String get(@NonNull String key, @NonNull String defaultValue) {
+        return route(key).get(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a String value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public static Boolean set(@NonNull String key, @NonNull String value) {
+        return route(key).set(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a StringSet value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @return The value from shared preferences, or null if the value could not be read.
+     */
+    @NonNull
+    public static Set<String> get(@NonNull String key, @NonNull Set<String> defaultValue) {
+        return route(key).get(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a StringSet value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public static Boolean set(@NonNull String key, @NonNull Set<String> value) {
+        return route(key).set(key, value);
+    }
+
+    /**
+     * Helper method to write a StringSet value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param values
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public static Boolean set(@NonNull String key, @NonNull String... values) {
+        return route(key).set(key, values);
+    }
+
+    /**
+     * Helper method to retrieve a float value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     */
+    @NonNull
+    public static Float get(@NonNull String key, @NonNull Float defaultValue) {
+        return route(key).get(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a float value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public static Boolean set(@NonNull String key, @NonNull Float value) {
+        return route(key).set(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a float value from {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     * @since 0.6.0
+     */
+    public static float getFloat(@NonNull String key, float defaultValue) {
+        return route(key).getFloat(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a float value to {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    public static boolean setFloat(@NonNull String key, float value) {
+        return route(key).setFloat(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a long value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     */
+    @NonNull
+    public static Long get(@NonNull String key, @NonNull Long defaultValue) {
+        return route(key).get(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a long value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public static Boolean set(@NonNull String key, @NonNull Long value) {
+        return route(key).set(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a long value from {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     * @since 0.6.0
+     */
+    public static long getLong(@NonNull String key, long defaultValue) {
+        return route(key).getLong(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a long value to {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    public static boolean setLong(@NonNull String key, long value) {
+        return route(key).setLong(key, value);
+    }
+
+    /**
+     * Helper method to retrieve an integer value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     */
+    @NonNull
+    public static Integer get(@NonNull String key, @NonNull Integer defaultValue) {
+        return route(key).get(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write an integer value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public static Boolean set(@NonNull String key, @NonNull Integer value) {
+        return route(key).set(key, value);
+    }
+
+    /**
+     * Helper method to retrieve an integer value from {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     * @since 0.6.0
+     */
+    public static int getInt(@NonNull String key, int defaultValue) {
+        return route(key).getInt(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write an integer value to {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    public static boolean setInt(@NonNull String key, int value) {
+        return route(key).setInt(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a boolean value from {@link SharedPreferences}.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     */
+    @NonNull
+    public static Boolean get(@NonNull String key, @NonNull Boolean defaultValue) {
+        return route(key).get(key, defaultValue);
+    }
+
+    /**
+     * Helper method to write a boolean value to {@link SharedPreferences}.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     */
+    @NonNull
+    public static Boolean set(@NonNull String key, @NonNull Boolean value) {
+        return route(key).set(key, value);
+    }
+
+    /**
+     * Helper method to retrieve a boolean value from {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param defaultValue A default to return if the value could not be read.
+     * @return The value from shared preferences, or the provided default.
+     * @since 0.6.0
      */
-    private static SharedPreferences preferences;
+    public static boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        return route(key).getBoolean(key, defaultValue);
+    }
 
-    private Preferences() {
+    /**
+     * Helper method to write a boolean value to {@link SharedPreferences} without boxing.
+     *
+     * @param key
+     * @param value
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    public static boolean setBoolean(@NonNull String key, boolean value) {
+        return route(key).setBoolean(key, value);
     }
 
     /**
-     * Initialize and create new {@link Preferences} instance if not exists
+     * Atomically add given delta to an integer value, treating absent value as 0.
+     * <p>
+     * Like other atomic updates, the new value is written using current
+     * write mode; in async mode use {@link #flush()} to wait until it is on disk.
      *
-     * @param provider {@link Context}
-     * @since 0.5.0
+     * @param key   preference key
+     * @param delta value to add
+     * @return new value, or null if value could not be written, or accepted
+     * for background write in async mode
+     * @since 0.6.0
      */
-    public static synchronized void of(@NonNull Provider provider) {
-        if (preferences == null) {
-            Context context = provider.getApplicationContext();
-            preferences = PreferenceManager.getDefaultSharedPreferences(context);
-        }
+    @Nullable
+    public static Integer increment(@NonNull String key, int delta) {
+        return route(key).increment(key, delta);
     }
 
     /**
-     * Dispose existing {@link Preferences} instance and release resources
+     * Atomically add given delta to a long value, treating absent value as 0.
+     * <p>
+     * Like other atomic updates, the new value is written using current
+     * write mode; in async mode use {@link #flush()} to wait until it is on disk.
      *
-     * @since 0.4.0
+     * @param key   preference key
+     * @param delta value to add
+     * @return new value, or null if value could not be written, or accepted
+     * for background write in async mode
+     * @since 0.6.0
      */
-    public static synchronized void dispose() {
-        if (preferences != null) {
-            preferences = null;
-        }
+    @Nullable
+    public static Long increment(@NonNull String key, long delta) {
+        return route(key).increment(key, delta);
     }
 
     /**
-     * Helper method to retrieve a String value from {@link SharedPreferences}.
+     * Atomically write an integer value if current value, with absent value
+     * treated as 0, equals given expected value.
      *
-     * @param key
-     * @return The value from shared preferences, or null if the value could not be read.
+     * @param key      preference key
+     * @param expected expected current value
+     * @param update   new value
+     * @return true if value was expected and new value was written
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized String get(@NonNull String key, @NonNull String defaultValue) {
-        try {
-            String value = defaultValue;
-            value = preferences.getString(key, defaultValue);
-            return value;
-        } catch (Exception e) {
-            return defaultValue;
-        }
+    public static Boolean compareAndSet(@NonNull String key, int expected, int update) {
+        return route(key).compareAndSet(key, expected, update);
     }
 
     /**
-     * Helper method to write a String value to {@link SharedPreferences}.
+     * Atomically write a long value if current value, with absent value
+     * treated as 0, equals given expected value.
      *
-     * @param key
-     * @param value
-     * @return true if the new value was successfully written to persistent storage.
+     * @param key      preference key
+     * @param expected expected current value
+     * @param update   new value
+     * @return true if value was expected and new value was written
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean set(@NonNull String key, @NonNull String value) {
-        try {
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putString(key, value);
-            return editor.commit();
-        } catch (Exception e) {
-            return false;
-        }
+    public static Boolean compareAndSet(@NonNull String key, long expected, long update) {
+        return route(key).compareAndSet(key, expected, update);
     }
 
     /**
-     * Helper method to retrieve a StringSet value from {@link SharedPreferences}.
+     * Atomically write a String value if current value equals given expected value.
      *
-     * @param key
-     * @return The value from shared preferences, or null if the value could not be read.
+     * @param key      preference key
+     * @param expected expected current value, or null if key should have no value
+     * @param update   new value, or null to remove the key
+     * @return true if value was expected and new value was written
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Set<String> get(@NonNull String key, @NonNull Set<String> defaultValue) {
-        try {
-            Set<String> value = defaultValue;
-            value = preferences.getStringSet(key, defaultValue);
-            return value;
-        } catch (Exception e) {
-            return defaultValue;
-        }
+    public static Boolean compareAndSet(@NonNull String key, @Nullable String expected,
+                                        @Nullable String update) {
+        return route(key).compareAndSet(key, expected, update);
     }
 
     /**
-     * Helper method to write a StringSet value to {@link SharedPreferences}.
+     * Atomically replace an integer value with the value computed from it.
      *
-     * @param key
-     * @param value
-     * @return true if the new value was successfully written to persistent storage.
+     * @param key          preference key
+     * @param defaultValue value given to the updater if key has no value
+     * @param updater      compute new value
+     * @return new value, or null if key was removed or could not be updated
+     * @since 0.6.0
+     */
+    @Nullable
+    public static Integer update(@NonNull String key, int defaultValue,
+                                 @NonNull Updater<Integer> updater) {
+        return route(key).update(key, defaultValue, updater);
+    }
+
+    /**
+     * Atomically replace a long value with the value computed from it.
+     *
+     * @param key          preference key
+     * @param defaultValue value given to the updater if key has no value
+     * @param updater      compute new value
+     * @return new value, or null if key was removed or could not be updated
+     * @since 0.6.0
+     */
+    @Nullable
+    public static Long update(@NonNull String key, long defaultValue,
+                              @NonNull Updater<Long> updater) {
+        return route(key).update(key, defaultValue, updater);
+    }
+
+    /**
+     * Atomically replace a String value with the value computed from it.
+     *
+     * @param key          preference key
+     * @param defaultValue value given to the updater if key has no value
+     * @param updater      compute new value
+     * @return new value, or null if key was removed or could not be updated
+     * @since 0.6.0
+     */
+    @Nullable
+    public static String update(@NonNull String key, @Nullable String defaultValue,
+                                @NonNull Updater<String> updater) {
+        return route(key).update(key, defaultValue, updater);
+    }
+
+    /**
+     * Add elements to a set, rewriting only the buckets holding them.
+     *
+     * @param key      set key
+     * @param elements elements to add
+     * @return true if new elements were successfully written to persistent storage.
+     * @see PreferenceStore#addToSet(String, String...)
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean set(@NonNull String key, @NonNull Set<String> value) {
-        try {
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putStringSet(key, value);
-            return editor.commit();
-        } catch (Exception e) {
-            return false;
-        }
+    public static Boolean addToSet(@NonNull String key, @NonNull String... elements) {
+        return route(key).addToSet(key, elements);
     }
 
     /**
-     * Helper method to write a StringSet value to {@link SharedPreferences}.
+     * Remove elements from a set, rewriting only the buckets holding them.
      *
-     * @param key
-     * @param values
-     * @return true if the new value was successfully written to persistent storage.
+     * @param key      set key
+     * @param elements elements to remove
+     * @return true if elements were successfully removed from persistent storage.
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean set(@NonNull String key, @NonNull String... values) {
-        try {
-            Set<String> _set = Common.Value.setOf(values);
-            return set(key, _set);
-        } catch (Exception e) {
-            return false;
-        }
+    public static Boolean removeFromSet(@NonNull String key, @NonNull String... elements) {
+        return route(key).removeFromSet(key, elements);
     }
 
     /**
-     * Helper method to retrieve a float value from {@link SharedPreferences}.
+     * Check if a set contains given element, reading only its bucket.
      *
-     * @param key
-     * @param defaultValue A default to return if the value could not be read.
-     * @return The value from shared preferences, or the provided default.
+     * @param key     set key
+     * @param element element to check
+     * @return true if set contains the element
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Float get(@NonNull String key, @NonNull Float defaultValue) {
-        try {
-            float value = defaultValue;
-            value = preferences.getFloat(key, defaultValue);
-            return value;
-        } catch (Exception e) {
-            return defaultValue;
-        }
+    public static Boolean setContains(@NonNull String key, @NonNull String element) {
+        return route(key).setContains(key, element);
     }
 
     /**
-     * Helper method to write a float value to {@link SharedPreferences}.
+     * Obtain all elements of a set.
      *
-     * @param key
-     * @param value
-     * @return true if the new value was successfully written to persistent storage.
+     * @param key set key
+     * @return set elements
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean set(@NonNull String key, @NonNull Float value) {
-        try {
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putFloat(key, value);
-            return editor.commit();
-        } catch (Exception e) {
-            return false;
-        }
+    public static Set<String> members(@NonNull String key) {
+        return route(key).members(key);
     }
 
     /**
-     * Helper method to retrieve a long value from {@link SharedPreferences}.
+     * Remove all elements of a set in a single commit.
      *
-     * @param key
-     * @param defaultValue A default to return if the value could not be read.
-     * @return The value from shared preferences, or the provided default.
+     * @param key set key
+     * @return true if set was successfully removed from persistent storage.
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Long get(@NonNull String key, @NonNull Long defaultValue) {
-        try {
-            long value = defaultValue;
-            value = preferences.getLong(key, defaultValue);
-            return value;
-        } catch (Exception e) {
-            return defaultValue;
-        }
+    public static Boolean clearSet(@NonNull String key) {
+        return route(key).clearSet(key);
     }
 
     /**
-     * Helper method to write a long value to {@link SharedPreferences}.
+     * Obtain a paged list stored in chunks of {@link PagedList#CHUNK_SIZE} items.
      *
-     * @param key
-     * @param value
-     * @return true if the new value was successfully written to persistent storage.
+     * @param key  list key
+     * @param type item type
+     * @return list handle
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean set(@NonNull String key, @NonNull Long value) {
-        try {
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putLong(key, value);
-            return editor.commit();
-        } catch (Exception e) {
-            return false;
-        }
+    public static <T> PagedList<T> list(@NonNull String key, @NonNull Class<T> type) {
+        return route(key).list(key, type);
     }
 
     /**
-     * Helper method to retrieve an integer value from {@link SharedPreferences}.
+     * Obtain a paged list stored in chunks of given number of items.
      *
-     * @param key
-     * @param defaultValue A default to return if the value could not be read.
-     * @return The value from shared preferences, or the provided default.
+     * @param key       list key
+     * @param type      item type
+     * @param chunkSize number of items per chunk, used when list is created
+     * @return list handle
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Integer get(@NonNull String key, @NonNull Integer defaultValue) {
-        try {
-            int value = defaultValue;
-            value = preferences.getInt(key, defaultValue);
-            return value;
-        } catch (Exception e) {
-            return defaultValue;
+    public static <T> PagedList<T> list(@NonNull String key, @NonNull Class<T> type, int chunkSize) {
+        return route(key).list(key, type, chunkSize);
+    }
+
+    /**
+     * Helper method to clear all {@link SharedPreferences}.
+     */
+    @NonNull
+    public static Boolean clear() {
+        boolean cleared = true;
+        for (PreferenceStore store : routes()) {
+            cleared &= store.clear();
         }
+        return cleared;
     }
 
     /**
-     * Helper method to write an integer value to {@link SharedPreferences}.
+     * Helper method to remove {@link SharedPreferences}.
+     */
+    @NonNull
+    public static Boolean remove(@NonNull String... keys) {
+        Map<PreferenceStore, List<String>> routed = new HashMap<PreferenceStore, List<String>>();
+        for (String key : keys) {
+            PreferenceStore store = route(key);
+            List<String> storeKeys = routed.get(store);
+            if (storeKeys == null) {
+                storeKeys = new ArrayList<String>();
+                routed.put(store, storeKeys);
+            }
+            storeKeys.add(key);
+        }
+        boolean removed = true;
+        for (Map.Entry<PreferenceStore, List<String>> entry : routed.entrySet()) {
+            List<String> storeKeys = entry.getValue();
+            removed &= entry.getKey().remove(storeKeys.toArray(new String[storeKeys.size()]));
+        }
+        return removed;
+    }
+
+    /**
+     * Helper method to write a group of values to {@link SharedPreferences} in a single commit.
      *
-     * @param key
-     * @param value
-     * @return true if the new value was successfully written to persistent storage.
+     * @param action records writes into a {@link Batch}
+     * @return true if all new values were successfully written to persistent storage.
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean set(@NonNull String key, @NonNull Integer value) {
+    public static Boolean edit(@NonNull Batch.Action action) {
         try {
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putInt(key, value);
-            return editor.commit();
+            Batch batch = new Batch(router);
+            action.run(batch);
+            return PreferenceStore.commit(batch);
         } catch (Exception e) {
+            Metrics metrics = Metrics.current;
+            if (metrics != null) {
+                metrics.onError("", null, e);
+            }
             return false;
         }
     }
 
     /**
-     * Helper method to retrieve a boolean value from {@link SharedPreferences}.
-     *
-     * @param key
-     * @param defaultValue A default to return if the value could not be read.
-     * @return The value from shared preferences, or the provided default.
+     * Helper method to clear {@link SharedPreferences}.
      */
     @NonNull
-    public static synchronized Boolean get(@NonNull String key, @NonNull Boolean defaultValue) {
-        try {
-            boolean value = defaultValue;
-            value = preferences.getBoolean(key, defaultValue);
-            return value;
-        } catch (Exception e) {
-            return defaultValue;
+    public static Boolean contains(@NonNull String key) {
+        return route(key).contains(key);
+    }
+
+    /**
+     * Helper method to get all {@link SharedPreferences}.
+     */
+    @Nullable
+    public static Map<String, ?> getAll() {
+        Collection<PreferenceStore> routes = routes();
+        if (routes.size() == 1) {
+            return routes.iterator().next().getAll();
+        }
+        Map<String, Object> all = new LinkedHashMap<String, Object>();
+        for (PreferenceStore store : routes) {
+            Map<String, ?> values = store.getAll();
+            if (values == null) {
+                return null;
+            }
+            all.putAll(values);
         }
+        return all;
     }
 
     /**
-     * Helper method to write a boolean value to {@link SharedPreferences}.
+     * Obtain keys starting with given prefix, in ascending order.
      *
-     * @param key
-     * @param value
-     * @return true if the new value was successfully written to persistent storage.
+     * @param prefix key prefix
+     * @return matched keys of all routed stores
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean set(@NonNull String key, @NonNull Boolean value) {
-        try {
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putBoolean(key, value);
-            return editor.commit();
-        } catch (Exception e) {
-            return false;
+    public static List<String> keys(@NonNull String prefix) {
+        Collection<PreferenceStore> routes = routes();
+        if (routes.size() == 1) {
+            return routes.iterator().next().keys(prefix);
         }
+        Set<String> keys = new TreeSet<String>();
+        for (PreferenceStore store : routes) {
+            keys.addAll(store.keys(prefix));
+        }
+        return new ArrayList<String>(keys);
     }
 
     /**
-     * Helper method to clear all {@link SharedPreferences}.
+     * Obtain values of keys starting with given prefix, in ascending key order.
+     *
+     * @param prefix key prefix
+     * @return matched values of all routed stores keyed by preference key
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean clear() {
-        try {
-            SharedPreferences.Editor editor = preferences.edit();
-            return editor.clear().commit();
-        } catch (Exception e) {
-            return false;
+    public static Map<String, ?> getAll(@NonNull String prefix) {
+        Collection<PreferenceStore> routes = routes();
+        if (routes.size() == 1) {
+            return routes.iterator().next().getAll(prefix);
         }
+        Map<String, Object> all = new TreeMap<String, Object>();
+        for (PreferenceStore store : routes) {
+            all.putAll(store.getAll(prefix));
+        }
+        return all;
     }
 
     /**
-     * Helper method to remove {@link SharedPreferences}.
+     * Remove all keys starting with given prefix.
+     *
+     * @param prefix key prefix
+     * @return true if matched keys were successfully removed from all routed stores
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean remove(@NonNull String... keys) {
-        try {
-            SharedPreferences.Editor editor = preferences.edit();
-            for (String key : keys) {
-                editor.remove(key);
-            }
-            return editor.commit();
-        } catch (Exception e) {
-            return false;
+    public static Boolean removePrefix(@NonNull String prefix) {
+        boolean removed = true;
+        for (PreferenceStore store : routes()) {
+            removed &= store.removePrefix(prefix);
         }
+        return removed;
     }
 
     /**
-     * Helper method to clear {@link SharedPreferences}.
+     * Capture a point-in-time view of given keys.
+     *
+     * @param keys preference keys
+     * @return immutable snapshot of given keys
+     * @since 0.6.0
      */
     @NonNull
-    public static synchronized Boolean contains(@NonNull String key) {
-        try {
-            boolean contains = preferences.contains(key);
-            return contains;
-        } catch (Exception e) {
-            return false;
+    public static Snapshot snapshot(@NonNull String... keys) {
+        Map<PreferenceStore, Collection<String>> routed =
+                new HashMap<PreferenceStore, Collection<String>>();
+        for (String key : keys) {
+            PreferenceStore store = route(key);
+            Collection<String> storeKeys = routed.get(store);
+            if (storeKeys == null) {
+                storeKeys = new ArrayList<String>();
+                routed.put(store, storeKeys);
+            }
+            storeKeys.add(key);
         }
+        return PreferenceStore.snapshot(routed);
     }
 
     /**
-     * Helper method to get all {@link SharedPreferences}.
+     * Capture a point-in-time view of all keys of all routed stores.
+     *
+     * @return immutable snapshot of all keys
+     * @since 0.6.0
      */
-    @Nullable
-    public static synchronized Map<String, ?> getAll() {
-        try {
-            Map<String, ?> all = preferences.getAll();
-            return all;
-        } catch (Exception e) {
-            return null;
+    @NonNull
+    public static Snapshot snapshot() {
+        Map<PreferenceStore, Collection<String>> routed =
+                new HashMap<PreferenceStore, Collection<String>>();
+        for (PreferenceStore store : routes()) {
+            routed.put(store, null);
         }
+        return PreferenceStore.snapshot(routed);
     }
 
     /**
@@ -354,15 +1550,65 @@ public class Preferences {
      * @return true if the new value was successfully written to persistent storage.
      */
     @NonNull
-    public static synchronized <T> Boolean set(@NonNull String key, @NonNull T value) {
-        try {
-            String json = Common.Value.toJson(value);
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putString(key, json);
-            return editor.commit();
-        } catch (Exception e) {
-            return false;
+    public static <T> Boolean set(@NonNull String key, @NonNull T value) {
+        return route(key).set(key, value);
+    }
+
+    /**
+     * Write a String value which expire after given time to live.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @param ttl   time to live
+     * @param unit  unit of time to live
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public static Boolean set(@NonNull String key, @NonNull String value,
+                              long ttl, @NonNull TimeUnit unit) {
+        return route(key).set(key, value, ttl, unit);
+    }
+
+    /**
+     * Write a generic value which expire after given time to live.
+     *
+     * @param key   preference key
+     * @param value new value
+     * @param ttl   time to live
+     * @param unit  unit of time to live
+     * @return true if the new value was successfully written to persistent storage.
+     * @since 0.6.0
+     */
+    @NonNull
+    public static <T> Boolean set(@NonNull String key, @NonNull T value,
+                                  long ttl, @NonNull TimeUnit unit) {
+        return route(key).set(key, value, ttl, unit);
+    }
+
+    /**
+     * Change period between background sweeps of expired values.
+     *
+     * @param period period between sweeps
+     * @param unit   unit of period
+     * @since 0.6.0
+     */
+    public static void sweep(long period, @NonNull TimeUnit unit) {
+        PreferenceStore.sweep(period, unit);
+    }
+
+    /**
+     * Remove expired values of all routed stores now.
+     *
+     * @return number of removed expired values
+     * @since 0.6.0
+     */
+    public static int sweep() {
+        int removed = 0;
+        for (PreferenceStore store : routes()) {
+            removed += store.sweep();
         }
+        return removed;
     }
 
     /**
@@ -373,14 +1619,8 @@ public class Preferences {
      * @return The value from shared preferences, or the provided default.
      */
     @Nullable
-    public static synchronized <T> T get(@NonNull String key, @NonNull Class<T> type) {
-        try {
-            String json = preferences.getString(key, "");
-            T value = Common.Value.fromJson(json, type);
-            return value;
-        } catch (Exception e) {
-            return null;
-        }
+    public static <T> T get(@NonNull String key, @NonNull Class<T> type) {
+        return route(key).get(key, type);
     }
 
     /**
@@ -393,16 +1633,10 @@ public class Preferences {
      * @since 0.1.0
      */
     @MainThread
-    public static synchronized void observe(
+    public static void observe(
             @NonNull LifecycleOwner owner, @NonNull String key,
             @NonNull String defaultValue, @NonNull Observer<String> observer) {
-        PreferenceLiveData<String> value = new PreferenceLiveData<String>(key, defaultValue) {
-            @Override
-            String getValue(@NonNull String key, String defaultValue) {
-                return get(key, defaultValue);
-            }
-        };
-        value.observe(owner, observer);
+        route(key).observe(owner, key, defaultValue, observer);
     }
 
     /**
@@ -415,16 +1649,10 @@ public class Preferences {
      * @since 0.1.0
      */
     @MainThread
-    public static synchronized void observe(
+    public static void observe(
             @NonNull LifecycleOwner owner, @NonNull String key,
             @NonNull Set<String> defaultValue, @NonNull Observer<Set<String>> observer) {
-        PreferenceLiveData<Set<String>> value = new PreferenceLiveData<Set<String>>(key, defaultValue) {
-            @Override
-            Set<String> getValue(@NonNull String key, Set<String> defaultValue) {
-                return get(key, defaultValue);
-            }
-        };
-        value.observe(owner, observer);
+        route(key).observe(owner, key, defaultValue, observer);
     }
 
     /**
@@ -437,16 +1665,10 @@ public class Preferences {
      * @since 0.1.0
      */
     @MainThread
-    public static synchronized void observe(
+    public static void observe(
             @NonNull LifecycleOwner owner, @NonNull String key,
             @NonNull Integer defaultValue, @NonNull Observer<Integer> observer) {
-        PreferenceLiveData<Integer> value = new PreferenceLiveData<Integer>(key, defaultValue) {
-            @Override
-            Integer getValue(@NonNull String key, Integer defaultValue) {
-                return get(key, defaultValue);
-            }
-        };
-        value.observe(owner, observer);
+        route(key).observe(owner, key, defaultValue, observer);
     }
 
     /**
@@ -459,16 +1681,10 @@ public class Preferences {
      * @since 0.1.0
      */
     @MainThread
-    public static synchronized void observe(
+    public static void observe(
             @NonNull LifecycleOwner owner, @NonNull String key,
             @NonNull Float defaultValue, @NonNull Observer<Float> observer) {
-        PreferenceLiveData<Float> value = new PreferenceLiveData<Float>(key, defaultValue) {
-            @Override
-            Float getValue(@NonNull String key, Float defaultValue) {
-                return get(key, defaultValue);
-            }
-        };
-        value.observe(owner, observer);
+        route(key).observe(owner, key, defaultValue, observer);
     }
 
     /**
@@ -481,16 +1697,10 @@ public class Preferences {
      * @since 0.1.0
      */
     @MainThread
-    public static synchronized void observe(
+    public static void observe(
             @NonNull LifecycleOwner owner, @NonNull String key,
             @NonNull Long defaultValue, @NonNull Observer<Long> observer) {
-        PreferenceLiveData<Long> value = new PreferenceLiveData<Long>(key, defaultValue) {
-            @Override
-            Long getValue(@NonNull String key, Long defaultValue) {
-                return get(key, defaultValue);
-            }
-        };
-        value.observe(owner, observer);
+        route(key).observe(owner, key, defaultValue, observer);
     }
 
     /**
@@ -503,16 +1713,10 @@ public class Preferences {
      * @since 0.1.0
      */
     @MainThread
-    public static synchronized void observe(
+    public static void observe(
             @NonNull LifecycleOwner owner, @NonNull String key,
             @NonNull Boolean defaultValue, @NonNull Observer<Boolean> observer) {
-        PreferenceLiveData<Boolean> value = new PreferenceLiveData<Boolean>(key, defaultValue) {
-            @Override
-            Boolean getValue(@NonNull String key, Boolean defaultValue) {
-                return get(key, defaultValue);
-            }
-        };
-        value.observe(owner, observer);
+        route(key).observe(owner, key, defaultValue, observer);
     }
 
     /**
@@ -524,60 +1728,54 @@ public class Preferences {
      * @since 0.1.0
      */
     @MainThread
-    public static synchronized <T> void observe(
+    public static <T> void observe(
             @NonNull LifecycleOwner owner, @NonNull String key,
             @NonNull final Class<T> type, @NonNull Observer<T> observer) {
-        PreferenceLiveData<T> value = new PreferenceLiveData<T>(key, null) {
-            @Override
-            T getValue(@NonNull String key, T defaultValue) {
-                return get(key, type);
-            }
-        };
-        value.observe(owner, observer);
+        route(key).observe(owner, key, type, observer);
     }
 
     /**
-     * A {@see LiveData} class which wraps {@link SharedPreferences.OnSharedPreferenceChangeListener}
+     * Listen for changes of given keys, receiving one {@link ChangeSet} per write
+     * with changed keys and current values of all given keys.
      *
-     * @since 0.1.0
+     * @param owner    The LifecycleOwner which controls the observer
+     * @param keys     preference keys
+     * @param observer The observer that will receive change sets
+     * @since 0.6.0
      */
-    private abstract static class PreferenceLiveData<T> extends LiveData<T> {
-        // refs
-        private String key;
-        private T defaultValue;
-        private SharedPreferences.OnSharedPreferenceChangeListener listener =
-                new SharedPreferences.OnSharedPreferenceChangeListener() {
-                    @Override
-                    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-                        if (PreferenceLiveData.this.key.equals(key)) {
-                            postValue(getValue(key, defaultValue));
-                        }
-                    }
-                };
-
-        public PreferenceLiveData(@NonNull String key, T defaultValue) {
-            this.key = key;
-            this.defaultValue = defaultValue;
-        }
-
-        abstract T getValue(@NonNull String key, T defaultValue);
-
-        @Override
-        protected void onActive() {
-            super.onActive();
-            postValue(getValue(key, defaultValue));
-            if (preferences != null) {
-                preferences.registerOnSharedPreferenceChangeListener(listener);
+    @MainThread
+    public static void observe(
+            @NonNull LifecycleOwner owner, @NonNull Collection<String> keys,
+            @NonNull Observer<ChangeSet> observer) {
+        Map<PreferenceStore, Collection<String>> observed =
+                new LinkedHashMap<PreferenceStore, Collection<String>>();
+        for (String key : keys) {
+            PreferenceStore store = route(key);
+            Collection<String> routed = observed.get(store);
+            if (routed == null) {
+                routed = new ArrayList<String>();
+                observed.put(store, routed);
             }
+            routed.add(key);
         }
+        new ChangeSetLiveData(observed).observe(owner, observer);
+    }
 
-        @Override
-        protected void onInactive() {
-            super.onInactive();
-            if (preferences != null) {
-                preferences.unregisterOnSharedPreferenceChangeListener(listener);
-            }
-        }
+    /**
+     * Listen for changes of keys starting with given prefix, receiving one
+     * {@link ChangeSet} per write with changed keys and current values of all
+     * keys with the prefix.
+     *
+     * @param owner    The LifecycleOwner which controls the observer
+     * @param prefix   preference key prefix
+     * @param observer The observer that will receive change sets
+     * @since 0.6.0
+     */
+    @MainThread
+    public static void observePrefix(
+            @NonNull LifecycleOwner owner, @NonNull String prefix,
+            @NonNull Observer<ChangeSet> observer) {
+        new ChangeSetLiveData(prefix, routes()).observe(owner, observer);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,148 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed routing of keys to prefix stores and hash shards.
+ * <p>
+ * Built once per change of routing configuration, with prefixes ordered
+ * longest first and shard names computed upfront. Stores are resolved on
+ * first use and kept, so routing a key does not allocate.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see Preferences#shard(String, String)
+ * @see Preferences#shard(int)
+ * @since 0.6.0
+ */
+final class Routing {
+    /**
+     * Routed key prefixes, longest first
+     *
+     * @since 0.6.0
+     */
+    private final String[] prefixes;
+
+    /**
+     * Names of stores owning each prefix
+     *
+     * @since 0.6.0
+     */
+    private final String[] prefixNames;
+
+    /**
+     * Resolved stores owning each prefix
+     *
+     * @since 0.6.0
+     */
+    private final PreferenceStore[] prefixStores;
+
+    /**
+     * Names of hash shards, empty when keys are not sharded
+     *
+     * @since 0.6.0
+     */
+    private final String[] shardNames;
+
+    /**
+     * Resolved hash shards
+     *
+     * @since 0.6.0
+     */
+    private final PreferenceStore[] shardStores;
+
+    /**
+     * Build routing of given configuration.
+     *
+     * @param routed store names keyed by routed key prefix
+     * @param shards number of hash shards
+     * @since 0.6.0
+     */
+    Routing(@NonNull Map<String, String> routed, int shards) {
+        List<Map.Entry<String, String>> entries =
+                new ArrayList<Map.Entry<String, String>>(routed.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, String>>() {
+            @Override
+            public int compare(Map.Entry<String, String> entry, Map.Entry<String, String> other) {
+                return other.getKey().length() - entry.getKey().length();
+            }
+        });
+        prefixes = new String[entries.size()];
+        prefixNames = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            prefixes[i] = entries.get(i).getKey();
+            prefixNames[i] = entries.get(i).getValue();
+        }
+        prefixStores = new PreferenceStore[prefixes.length];
+        shardNames = new String[shards > 1 ? shards : 0];
+        for (int i = 0; i < shardNames.length; i++) {
+            shardNames[i] = Preferences.SHARD_PREFIX + i;
+        }
+        shardStores = new PreferenceStore[shardNames.length];
+    }
+
+    /**
+     * Obtain store which own given key.
+     * <p>
+     * When prefixes overlap, the longest matching prefix wins.
+     *
+     * @param key preference key
+     * @return owning store, or null if key belongs to the default store
+     * @since 0.6.0
+     */
+    @Nullable
+    PreferenceStore route(@NonNull String key) {
+        for (int i = 0; i < prefixes.length; i++) {
+            if (key.startsWith(prefixes[i])) {
+                return resolve(prefixStores, prefixNames, i);
+            }
+        }
+        if (shardNames.length > 0) {
+            int hash = key.hashCode();
+            hash ^= (hash >>> 16);
+            return resolve(shardStores, shardNames, (hash & 0x7fffffff) % shardNames.length);
+        }
+        return null;
+    }
+
+    /**
+     * Add all prefix stores and hash shards to given routes.
+     *
+     * @param routes collected routes
+     * @since 0.6.0
+     */
+    void routes(@NonNull Collection<PreferenceStore> routes) {
+        for (int i = 0; i < prefixNames.length; i++) {
+            routes.add(resolve(prefixStores, prefixNames, i));
+        }
+        for (int i = 0; i < shardNames.length; i++) {
+            routes.add(resolve(shardStores, shardNames, i));
+        }
+    }
+
+    /**
+     * Obtain store at given slot, opening it on first use.
+     * <p>
+     * Racing threads resolve the same named store, so slots need no locking.
+     *
+     * @since 0.6.0
+     */
+    @NonNull
+    private static PreferenceStore resolve(@NonNull PreferenceStore[] stores,
+                                           @NonNull String[] names, int slot) {
+        PreferenceStore store = stores[slot];
+        if (store == null) {
+            store = Preferences.store(names[slot]);
+            stores[slot] = store;
+        }
+        return store;
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, point-in-time view of a group of keys.
+ * <p>
+ * Values are captured while writes to the keys are blocked, so a snapshot
+ * never observe half of a write. Generic values are decoded on access.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see PreferenceStore#snapshot(String...)
+ * @since 0.6.0
+ */
+public final class Snapshot {
+    private final Map<String, Object> values;
+
+    Snapshot(@NonNull Map<String, Object> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Obtain captured keys which have a value.
+     *
+     * @return captured keys
+     * @since 0.6.0
+     */
+    @NonNull
+    public Set<String> keys() {
+        return values.keySet();
+    }
+
+    /**
+     * Check if given key had a value.
+     *
+     * @param key preference key
+     * @return true if key had a value
+     * @since 0.6.0
+     */
+    public boolean contains(@NonNull String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Obtain captured {@link String} value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key had no string value
+     * @return captured value, or the provided default
+     * @since 0.6.0
+     */
+    @Nullable
+    public String getString(@NonNull String key, @Nullable String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    /**
+     * Obtain captured {@link Set} of {@link String} value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key had no string set value
+     * @return captured value, or the provided default
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Set ? (Set<String>) value : defaultValue;
+    }
+
+    /**
+     * Obtain captured integer value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key had no integer value
+     * @return captured value, or the provided default
+     * @since 0.6.0
+     */
+    public int getInt(@NonNull String key, int defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    /**
+     * Obtain captured long value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key had no long value
+     * @return captured value, or the provided default
+     * @since 0.6.0
+     */
+    public long getLong(@NonNull String key, long defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    /**
+     * Obtain captured float value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key had no float value
+     * @return captured value, or the provided default
+     * @since 0.6.0
+     */
+    public float getFloat(@NonNull String key, float defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Float ? (Float) value : defaultValue;
+    }
+
+    /**
+     * Obtain captured boolean value.
+     *
+     * @param key          preference key
+     * @param defaultValue value to return if key had no boolean value
+     * @return captured value, or the provided default
+     * @since 0.6.0
+     */
+    public boolean getBoolean(@NonNull String key, boolean defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    /**
+     * Obtain captured generic value, decoded with the codec of given type.
+     *
+     * @param key  preference key
+     * @param type value type
+     * @return decoded value, or null if key had no value or it could not be decoded
+     * @since 0.6.0
+     */
+    @Nullable
+    public <T> T get(@NonNull String key, @NonNull Class<T> type) {
+        Object value = values.get(key);
+        if (!(value instanceof String)) {
+            return null;
+        }
+        try {
+            return Codecs.decode((String) value, type);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot{values=" + values + "}";
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Compute a new value of a key from its current value, atomically with
+ * respect to other writes of the key.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @see PreferenceStore#update(String, int, Updater)
+ * @since 0.6.0
+ */
+public interface Updater<T> {
+    /**
+     * Compute new value.
+     * <p>
+     * Called while writes of the key are blocked, so it should be quick and
+     * must not write the same key.
+     *
+     * @param current current value, or the provided default if key has no value
+     * @return new value, or null to remove the key
+     * @since 0.6.0
+     */
+    @Nullable
+    T update(@Nullable T current);
+}
@@ -0,0 +1,222 @@
+package com.github.lykmapipo.preference;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded LRU cache of values decoded from json preference values.
+ * <p>
+ * Only values of registered types are cached. Cached instances are shared
+ * by all readers, so only immutable types can be registered: all instance
+ * fields must be final and hold primitives, boxed primitives, strings,
+ * enums or other immutable types.
+ * <p>
+ * Each entry remember the raw json it was decoded from, and is only served
+ * while the store still hold that exact json instance. So an entry can
+ * never outlive a write, even one made outside {@link Preferences}.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class ValueCache {
+    /**
+     * Types allowed to be cached
+     *
+     * @since 0.6.0
+     */
+    private final Set<Class<?>> types =
+            Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+    /**
+     * Decoded values keyed by preference key
+     *
+     * @since 0.6.0
+     */
+    private final LruCache<String, Entry> entries;
+
+    ValueCache(int maxSize) {
+        entries = new LruCache<String, Entry>(maxSize);
+    }
+
+    /**
+     * Allow values of given types to be cached.
+     *
+     * @param types immutable value types
+     * @throws IllegalArgumentException if a type is not immutable
+     * @since 0.6.0
+     */
+    void register(@NonNull Class<?>... types) {
+        for (Class<?> type : types) {
+            checkImmutable(type);
+        }
+        Collections.addAll(this.types, types);
+    }
+
+    /**
+     * Forbid caching of values of all types.
+     *
+     * @since 0.6.0
+     */
+    void unregisterAll() {
+        types.clear();
+        entries.evictAll();
+    }
+
+    /**
+     * Ensure instances of given type can be shared by all readers.
+     *
+     * @param type value type
+     * @throws IllegalArgumentException if type is not immutable
+     * @since 0.6.0
+     */
+    static void checkImmutable(@NonNull Class<?> type) {
+        checkImmutable(type, new HashSet<Class<?>>());
+    }
+
+    private static void checkImmutable(@NonNull Class<?> type, @NonNull Set<Class<?>> checked) {
+        if (type.isPrimitive() || type.isEnum() || type == String.class
+                || type == Boolean.class || type == Character.class
+                || (Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang."))
+                || !checked.add(type)) {
+            return;
+        }
+        if (type.isArray() || type.isInterface() || type == Object.class
+                || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException(type.getName() + " is not immutable");
+        }
+        for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                if (!Modifier.isFinal(modifiers)) {
+                    throw new IllegalArgumentException(type.getName()
+                            + " is not immutable, field " + field.getName() + " is not final");
+                }
+                checkImmutable(field.getType(), checked);
+            }
+        }
+    }
+
+    /**
+     * Change maximum number of cached values.
+     *
+     * @param maxSize maximum number of cached values
+     * @since 0.6.0
+     */
+    void resize(int maxSize) {
+        entries.resize(maxSize);
+    }
+
+    /**
+     * Check if there are no cacheable types registered.
+     *
+     * @return true if cache is unused
+     * @since 0.6.0
+     */
+    boolean isDisabled() {
+        return types.isEmpty();
+    }
+
+    /**
+     * Check if values of given type can be cached.
+     *
+     * @param type value type
+     * @return true if type is cacheable
+     * @since 0.6.0
+     */
+    boolean accepts(@NonNull Class<?> type) {
+        return !types.isEmpty() && types.contains(type);
+    }
+
+    /**
+     * Obtain cached value decoded from given json.
+     *
+     * @param key  preference key
+     * @param type value type
+     * @param json current raw json of the key
+     * @return cached value, or null if not cached
+     * @since 0.6.0
+     */
+    @Nullable
+    <T> T get(@NonNull String key, @NonNull Class<T> type, @Nullable String json) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.json == json && entry.type == type) {
+            return type.cast(entry.value);
+        }
+        return null;
+    }
+
+    /**
+     * Cache value decoded from given json.
+     *
+     * @param key   preference key
+     * @param type  value type
+     * @param json  raw json the value was decoded from
+     * @param value decoded value
+     * @since 0.6.0
+     */
+    <T> void put(@NonNull String key, @NonNull Class<T> type, @NonNull String json, @NonNull T value) {
+        entries.put(key, new Entry(type, json, value));
+    }
+
+    /**
+     * Drop cached value of given key.
+     *
+     * @param key preference key
+     * @since 0.6.0
+     */
+    void invalidate(@NonNull String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Drop cached values of given keys.
+     *
+     * @param keys preference keys
+     * @since 0.6.0
+     */
+    void invalidate(@NonNull Collection<String> keys) {
+        for (String key : keys) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Drop all cached values.
+     *
+     * @since 0.6.0
+     */
+    void invalidateAll() {
+        entries.evictAll();
+    }
+
+    /**
+     * Cached decoded value
+     *
+     * @since 0.6.0
+     */
+    private static final class Entry {
+        private final Class<?> type;
+        private final String json;
+        private final Object value;
+
+        Entry(@NonNull Class<?> type, @NonNull String json, @NonNull Object value) {
+            this.type = type;
+            this.json = json;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Side files holding large values of a store, referenced from preferences
+ * by small pointers.
+ * <p>
+ * Each write creates a new file, so a pointer always refer to the same
+ * content and readers of a previous pointer are never affected by writes.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+final class ValueFiles {
+    /**
+     * Leading character of stored pointers
+     *
+     * @since 0.6.0
+     */
+    static final char MARKER = '\u0003';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Directory holding value files
+     *
+     * @since 0.6.0
+     */
+    private final File directory;
+
+    /**
+     * Length above which values are offloaded, or zero when disabled
+     *
+     * @since 0.6.0
+     */
+    private volatile int threshold = 0;
+
+    ValueFiles(@NonNull File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Change length above which values are offloaded.
+     *
+     * @param threshold value length, or zero to disable offloading
+     * @since 0.6.0
+     */
+    void threshold(int threshold) {
+        this.threshold = Math.max(0, threshold);
+    }
+
+    /**
+     * Check if offloading is enabled
+     *
+     * @since 0.6.0
+     */
+    boolean isEnabled() {
+        return threshold > 0;
+    }
+
+    /**
+     * Check if given value should be offloaded.
+     *
+     * @param raw encoded value
+     * @return true if value is above threshold
+     * @since 0.6.0
+     */
+    boolean accepts(@NonNull String raw) {
+        int limit = threshold;
+        return limit > 0 && raw.length() > limit;
+    }
+
+    /**
+     * Check if given stored value is a pointer to a value file.
+     *
+     * @param raw stored value
+     * @return true if value is a pointer
+     * @since 0.6.0
+     */
+    static boolean isPointer(@Nullable String raw) {
+        return raw != null && raw.length() > 1 && raw.charAt(0) == MARKER;
+    }
+
+    /**
+     * Write given value into a new file.
+     *
+     * @param raw encoded value
+     * @return pointer to written file
+     * @throws IOException if value could not be written
+     * @since 0.6.0
+     */
+    @NonNull
+    String write(@NonNull String raw) throws IOException {
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        String name = UUID.randomUUID().toString();
+        File file = new File(directory, name);
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        boolean written = false;
+        try {
+            ByteBuffer bytes = UTF_8.encode(CharBuffer.wrap(raw));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            written = true;
+        } finally {
+            channel.close();
+            if (!written) {
+                file.delete();
+            }
+        }
+        return MARKER + name;
+    }
+
+    /**
+     * Read value referenced by given pointer.
+     *
+     * @param pointer stored pointer
+     * @return encoded value
+     * @throws IOException if value could not be read
+     * @since 0.6.0
+     */
+    @NonNull
+    String read(@NonNull String pointer) throws IOException {
+        FileChannel channel = new FileInputStream(file(pointer)).getChannel();
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Value too large " + pointer);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                // keep reading until buffer is full or end of file
+            }
+            bytes.flip();
+            return UTF_8.decode(bytes).toString();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Delete file referenced by given pointer.
+     *
+     * @param pointer stored pointer
+     * @since 0.6.0
+     */
+    void delete(@NonNull String pointer) {
+        file(pointer).delete();
+    }
+
+    /**
+     * Delete files not referenced by given stored values.
+     *
+     * @param values all stored values
+     * @since 0.6.0
+     */
+    void sweep(@NonNull Collection<?> values) {
+        File[] files = directory.listFiles();
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Set<String> referenced = new HashSet<String>();
+        for (Object value : values) {
+            if (value instanceof String && isPointer((String) value)) {
+                referenced.add(((String) value).substring(1));
+            }
+        }
+        for (File file : files) {
+            if (!referenced.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    @NonNull
+    private File file(@NonNull String pointer) {
+        // file names never contain separators, guard against tampered values
+        return new File(directory, new File(pointer.substring(1)).getName());
+    }
+}
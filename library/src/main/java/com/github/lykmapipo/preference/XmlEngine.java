@@ -0,0 +1,23 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Default {@link Engine} backed by platform xml {@link SharedPreferences} files.
+ * <p>
+ * Each commit rewrite the whole file of a store.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.6.0
+ * @since 0.6.0
+ */
+public class XmlEngine implements Engine {
+    @NonNull
+    @Override
+    public SharedPreferences open(@NonNull Context context, @NonNull String name) {
+        return context.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,190 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Minimal JMH-style harness used by benchmark suites: warmup and measured
+ * iterations of a fixed number of operations, run by one or more threads,
+ * reported as json.
+ *
+ * @author lally elias
+ */
+final class Benchmark {
+    /**
+     * System property holding directory where json reports are written
+     */
+    static final String OUTPUT = "benchmark.output";
+
+    private final String suite;
+    private final List<Result> results = new ArrayList<Result>();
+    private int warmups = 3;
+    private int iterations = 5;
+
+    Benchmark(@NonNull String suite) {
+        this.suite = suite;
+    }
+
+    @NonNull
+    Benchmark iterations(int warmups, int iterations) {
+        this.warmups = warmups;
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * Measure given operation.
+     *
+     * @param name       benchmark name
+     * @param params     benchmark parameters, reported as is
+     * @param threads    number of threads running the operation concurrently
+     * @param operations number of operations per thread per iteration
+     * @param operation  measured operation
+     * @return measured result
+     */
+    @NonNull
+    Result measure(@NonNull String name, @NonNull Map<String, Object> params,
+                   int threads, int operations, @NonNull Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < warmups; i++) {
+                run(executor, threads, operations, operation);
+            }
+            double[] nanosPerOperation = new double[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long nanos = run(executor, threads, operations, operation);
+                nanosPerOperation[i] = (double) nanos / operations;
+            }
+            Result result = new Result(name, params, threads, operations, nanosPerOperation);
+            results.add(result);
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Write collected results as json into configured output directory.
+     *
+     * @return written report file
+     */
+    @NonNull
+    File report() throws IOException {
+        File directory = new File(System.getProperty(OUTPUT, "build/reports/benchmarks"));
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        File report = new File(directory, suite + ".json");
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        json.put("suite", suite);
+        json.put("timestamp", System.currentTimeMillis());
+        json.put("results", results);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(report), "UTF-8");
+        try {
+            writer.write(new Gson().toJson(json));
+        } finally {
+            writer.close();
+        }
+        return report;
+    }
+
+    /**
+     * Run one iteration and return elapsed time of the slowest thread.
+     */
+    private long run(@NonNull ExecutorService executor, int threads, final int operations,
+                     @NonNull final Operation operation) throws Exception {
+        final CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<Long>> elapsed = new ArrayList<Future<Long>>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            elapsed.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    start.await();
+                    long begin = System.nanoTime();
+                    for (int i = 0; i < operations; i++) {
+                        operation.run(thread, i);
+                    }
+                    return System.nanoTime() - begin;
+                }
+            }));
+        }
+        long slowest = 0;
+        for (Future<Long> nanos : elapsed) {
+            slowest = Math.max(slowest, nanos.get());
+        }
+        return slowest;
+    }
+
+    @NonNull
+    static Map<String, Object> params(@NonNull Object... pairs) {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            params.put(String.valueOf(pairs[i]), pairs[i + 1]);
+        }
+        return params;
+    }
+
+    /**
+     * Benchmarked operation
+     */
+    interface Operation {
+        void run(int thread, int index) throws Exception;
+    }
+
+    /**
+     * Measured result of a benchmark
+     */
+    static final class Result {
+        final String name;
+        final Map<String, Object> params;
+        final int threads;
+        final int operations;
+        final double meanNanos;
+        final double minNanos;
+        final double maxNanos;
+        final double throughput;
+
+        Result(@NonNull String name, @NonNull Map<String, Object> params,
+               int threads, int operations, @NonNull double[] nanosPerOperation) {
+            this.name = name;
+            this.params = params;
+            this.threads = threads;
+            this.operations = operations;
+            double[] sorted = nanosPerOperation.clone();
+            Arrays.sort(sorted);
+            double sum = 0;
+            for (double nanos : sorted) {
+                sum += nanos;
+            }
+            this.meanNanos = sum / sorted.length;
+            this.minNanos = sorted[0];
+            this.maxNanos = sorted[sorted.length - 1];
+            // operations per second across all threads
+            this.throughput = threads * 1e9 / meanNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s threads=%d mean=%.1fns/op throughput=%.0fops/s",
+                    name, params, threads, meanNanos, throughput);
+        }
+    }
+}
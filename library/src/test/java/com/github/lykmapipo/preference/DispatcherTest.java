@@ -0,0 +1,114 @@
+package com.github.lykmapipo.preference;
+
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Dispatcher Tests
+ *
+ * @author lally elias
+ */
+public class DispatcherTest {
+
+    @Test
+    public void testShouldDispatchOnlyToKeySubscribers() {
+
+        Dispatcher dispatcher = new Dispatcher();
+        CountingSubscriber[] subscribers = new CountingSubscriber[200];
+        for (int i = 0; i < subscribers.length; i++) {
+            subscribers[i] = new CountingSubscriber();
+            dispatcher.subscribe("KEY_" + i, subscribers[i]);
+        }
+        CountingSubscriber wildcard = new CountingSubscriber();
+        dispatcher.subscribe(wildcard);
+
+        dispatcher.dispatch("KEY_7");
+
+        for (int i = 0; i < subscribers.length; i++) {
+            assertEquals("Only key subscribers should be notified", i == 7 ? 1 : 0, subscribers[i].count);
+        }
+        assertEquals("Wildcard subscriber should be notified", 1, wildcard.count);
+
+    }
+
+    @Test
+    public void testShouldDispatchClearToAllSubscribers() {
+
+        Dispatcher dispatcher = new Dispatcher();
+        CountingSubscriber first = new CountingSubscriber();
+        CountingSubscriber second = new CountingSubscriber();
+        dispatcher.subscribe("KEY_1", first);
+        dispatcher.subscribe("KEY_2", second);
+
+        dispatcher.dispatch(null);
+
+        assertEquals("Subscriber should be notified", 1, first.count);
+        assertEquals("Subscriber should be notified", 1, second.count);
+
+    }
+
+    @Test
+    public void testShouldNotDispatchToUnsubscribed() {
+
+        Dispatcher dispatcher = new Dispatcher();
+        CountingSubscriber subscriber = new CountingSubscriber();
+        dispatcher.subscribe("KEY_1", subscriber);
+        dispatcher.unsubscribe("KEY_1", subscriber);
+
+        dispatcher.dispatch("KEY_1");
+
+        assertEquals("Unsubscribed should not be notified", 0, subscriber.count);
+
+    }
+
+    @Test
+    public void testShouldKeepSubscriptionsWhileOthersUnsubscribe() throws Exception {
+
+        final Dispatcher dispatcher = new Dispatcher();
+        final CountingSubscriber churn = new CountingSubscriber();
+        final AtomicBoolean done = new AtomicBoolean(false);
+        Thread churning = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    dispatcher.subscribe("KEY_1", churn);
+                    dispatcher.unsubscribe("KEY_1", churn);
+                }
+            }
+        });
+        churning.start();
+
+        int missed = 0;
+        try {
+            for (int i = 0; i < 10000; i++) {
+                CountingSubscriber subscriber = new CountingSubscriber();
+                dispatcher.subscribe("KEY_1", subscriber);
+                dispatcher.dispatch("KEY_1");
+                if (subscriber.count == 0) {
+                    missed++;
+                }
+                dispatcher.unsubscribe("KEY_1", subscriber);
+            }
+        } finally {
+            done.set(true);
+            churning.join();
+        }
+
+        assertEquals("No subscription should be lost", 0, missed);
+
+    }
+
+    private static class CountingSubscriber implements Dispatcher.Subscriber {
+        private int count = 0;
+
+        @Override
+        public void onChanged(@Nullable String key) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.github.lykmapipo.common.provider.Provider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * LogSharedPreferences Tests
+ *
+ * @author lally elias
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class LogSharedPreferencesTest {
+
+    private File file;
+
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        file = new File(context.getFilesDir(), "test-" + System.nanoTime() + ".log");
+    }
+
+    @Test
+    public void testShouldBeAbleToReopenValues() {
+
+        Set<String> set = new HashSet<String>();
+        set.add("Any 1");
+        set.add("Any 2");
+
+        LogSharedPreferences preferences = new LogSharedPreferences(file);
+        boolean isSet = preferences.edit()
+                .putString("ANY_STRING", "Any")
+                .putStringSet("ANY_STRING_SET", set)
+                .putInt("ANY_INT", 19)
+                .putLong("ANY_LONG", 19L)
+                .putFloat("ANY_FLOAT", 1.9f)
+                .putBoolean("ANY_BOOL", true)
+                .commit();
+        preferences.edit().remove("ANY_LONG").commit();
+
+        SharedPreferences reopened = new LogSharedPreferences(file);
+
+        assertTrue("Values should be set", isSet);
+        assertEquals("String should be same value", "Any", reopened.getString("ANY_STRING", ""));
+        assertEquals("String Set should be same value", set, reopened.getStringSet("ANY_STRING_SET", null));
+        assertEquals("Integer should be same value", 19, reopened.getInt("ANY_INT", 0));
+        assertEquals("Float should be same value", 1.9f, reopened.getFloat("ANY_FLOAT", 0f), 0f);
+        assertTrue("Boolean should be same value", reopened.getBoolean("ANY_BOOL", false));
+        assertFalse("Long should be removed", reopened.contains("ANY_LONG"));
+
+    }
+
+    @Test
+    public void testShouldRecoverFromTornTail() throws Exception {
+
+        LogSharedPreferences preferences = new LogSharedPreferences(file);
+        preferences.edit().putString("ANY_STRING", "Any").commit();
+        long size = file.length();
+
+        RandomAccessFile log = new RandomAccessFile(file, "rw");
+        log.seek(size);
+        log.writeInt(1024);
+        log.writeInt(0);
+        log.write(new byte[]{1, 2, 3});
+        log.close();
+
+        SharedPreferences reopened = new LogSharedPreferences(file);
+
+        assertEquals("String should be recovered", "Any", reopened.getString("ANY_STRING", ""));
+        assertEquals("Torn tail should be truncated", size, file.length());
+
+    }
+
+    @Test
+    public void testShouldDropRecordWithInvalidChecksum() throws Exception {
+
+        LogSharedPreferences preferences = new LogSharedPreferences(file);
+        preferences.edit().putString("ANY_STRING", "Any").commit();
+        preferences.edit().putString("ANY_STRING", "Other").commit();
+
+        RandomAccessFile log = new RandomAccessFile(file, "rw");
+        log.seek(log.length() - 1);
+        log.writeByte('X');
+        log.close();
+
+        SharedPreferences reopened = new LogSharedPreferences(file);
+
+        assertEquals("Last valid value should be recovered", "Any", reopened.getString("ANY_STRING", ""));
+
+    }
+
+    @Test
+    public void testShouldBeAbleToCompact() {
+
+        LogSharedPreferences preferences = new LogSharedPreferences(file);
+        for (int i = 0; i < 100; i++) {
+            preferences.edit().putInt("ANY_INT", i).commit();
+        }
+        long size = preferences.size();
+
+        boolean isCompacted = preferences.compactNow();
+        preferences.edit().putString("ANY_STRING", "Any").commit();
+        SharedPreferences reopened = new LogSharedPreferences(file);
+
+        assertTrue("Log should be compacted", isCompacted);
+        assertTrue("Log should shrink", preferences.size() < size);
+        assertEquals("Integer should be latest value", 99, reopened.getInt("ANY_INT", 0));
+        assertEquals("String should be appended after compaction", "Any", reopened.getString("ANY_STRING", ""));
+
+    }
+
+    @Test
+    public void testShouldCompactAppendedRecordsOnly() {
+
+        LogSharedPreferences preferences = new LogSharedPreferences(file);
+        for (int i = 0; i < 100; i++) {
+            preferences.edit().putInt("ANY_INT", i).apply();
+        }
+
+        boolean isCompacted = preferences.compactNow();
+        preferences.edit().remove("ANY_INT").apply();
+        preferences.compactNow();
+        SharedPreferences reopened = new LogSharedPreferences(file);
+
+        assertTrue("Log should be compacted", isCompacted);
+        assertFalse("Removal queued after compaction should be kept", reopened.contains("ANY_INT"));
+
+    }
+
+    @Test
+    public void testShouldBackPreferenceStore() {
+
+        Preferences.of(new Provider() {
+            @NonNull
+            @Override
+            public Context getApplicationContext() {
+                return ApplicationProvider.getApplicationContext();
+            }
+        });
+        PreferenceStore store = Preferences.store("log", new LogEngine());
+
+        Boolean isSet = store.set("ANY_ACCOUNT", new PreferencesTest.Account("Any", "Any"));
+        PreferencesTest.Account account = store.get("ANY_ACCOUNT", PreferencesTest.Account.class);
+
+        assertTrue("Generic should be set", isSet);
+        assertEquals("Generic should be same value", "Any", account.name);
+        store.clear();
+
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+}
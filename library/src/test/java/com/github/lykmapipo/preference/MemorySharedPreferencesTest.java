@@ -0,0 +1,186 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.github.lykmapipo.common.provider.Provider;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MemorySharedPreferences Tests
+ *
+ * @author lally elias
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class MemorySharedPreferencesTest {
+
+    @Test
+    public void testShouldBeAbleToSetValues() {
+
+        Set<String> set = new HashSet<String>();
+        set.add("Any 1");
+
+        SharedPreferences preferences = new MemorySharedPreferences();
+        boolean isSet = preferences.edit()
+                .putString("ANY_STRING", "Any")
+                .putStringSet("ANY_STRING_SET", set)
+                .putInt("ANY_INT", 19)
+                .putBoolean("ANY_BOOL", true)
+                .commit();
+        preferences.edit().remove("ANY_INT").apply();
+
+        assertTrue("Values should be set", isSet);
+        assertEquals("String should be same value", "Any", preferences.getString("ANY_STRING", ""));
+        assertEquals("String Set should be same value", set, preferences.getStringSet("ANY_STRING_SET", null));
+        assertTrue("Boolean should be same value", preferences.getBoolean("ANY_BOOL", false));
+        assertFalse("Integer should be removed", preferences.contains("ANY_INT"));
+
+    }
+
+    @Test
+    public void testShouldNotifyListeners() {
+
+        final List<String> changed = new ArrayList<String>();
+        SharedPreferences.OnSharedPreferenceChangeListener listener =
+                new SharedPreferences.OnSharedPreferenceChangeListener() {
+                    @Override
+                    public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+                        changed.add(key);
+                    }
+                };
+
+        SharedPreferences preferences = new MemorySharedPreferences();
+        preferences.registerOnSharedPreferenceChangeListener(listener);
+        preferences.edit().putString("ANY_STRING", "Any").commit();
+        preferences.edit().putString("ANY_STRING", "Any").commit();
+        preferences.unregisterOnSharedPreferenceChangeListener(listener);
+        preferences.edit().putString("ANY_STRING", "Other").commit();
+
+        assertEquals("Only changed values should be notified", 1, changed.size());
+        assertEquals("Changed key should be notified", "ANY_STRING", changed.get(0));
+
+    }
+
+    @Test
+    public void testShouldWriteThroughToTarget() {
+
+        Context context = ApplicationProvider.getApplicationContext();
+        SharedPreferences target = context.getSharedPreferences("memory", Context.MODE_PRIVATE);
+        target.edit().putInt("ANY_INT", 19).commit();
+
+        SharedPreferences preferences = new MemorySharedPreferences(target);
+        boolean isSet = preferences.edit().putString("ANY_STRING", "Any").remove("ANY_INT").commit();
+
+        assertTrue("String should be set", isSet);
+        assertEquals("String should be written through", "Any", target.getString("ANY_STRING", ""));
+        assertFalse("Integer should be removed from target", target.contains("ANY_INT"));
+
+    }
+
+    @Test
+    public void testShouldBackPreferenceStore() {
+
+        Preferences.of(new Provider() {
+            @NonNull
+            @Override
+            public Context getApplicationContext() {
+                return ApplicationProvider.getApplicationContext();
+            }
+        });
+        PreferenceStore store = Preferences.store("memory", new MemoryEngine());
+
+        Boolean isSet = store.set("ANY_ACCOUNT", new PreferencesTest.Account("Any", "Any"));
+        PreferencesTest.Account account = store.get("ANY_ACCOUNT", PreferencesTest.Account.class);
+
+        assertTrue("Generic should be set", isSet);
+        assertEquals("Generic should be same value", "Any", account.name);
+        store.clear();
+
+    }
+
+    @Test
+    public void testShouldBufferWritesUntilFlush() throws Exception {
+
+        Preferences.of(new Provider() {
+            @NonNull
+            @Override
+            public Context getApplicationContext() {
+                return ApplicationProvider.getApplicationContext();
+            }
+        });
+        Context context = ApplicationProvider.getApplicationContext();
+        SharedPreferences target = context.getSharedPreferences("buffered", Context.MODE_PRIVATE);
+        PreferenceStore store = Preferences.store("buffered",
+                new BufferedEngine(new XmlEngine(), 1, TimeUnit.HOURS, 100));
+
+        for (int i = 0; i < 50; i++) {
+            store.setInt("ANY_INT", i);
+        }
+
+        assertEquals("Buffered value should be read", 49, store.getInt("ANY_INT", 0));
+        assertFalse("Buffered value should not be written", target.contains("ANY_INT"));
+
+        Boolean isFlushed = Preferences.flush().get();
+
+        assertTrue("Buffer should be flushed", isFlushed);
+        assertEquals("Flushed value should be written", 49, target.getInt("ANY_INT", 0));
+        store.clear();
+        store.flush().get();
+
+    }
+
+    @Test
+    public void testShouldKeepChangesOfFailedFlush() {
+
+        final boolean[] failing = {true};
+        MemorySharedPreferences target = new MemorySharedPreferences() {
+            @Override
+            boolean sync() {
+                return !failing[0];
+            }
+        };
+        BufferedSharedPreferences preferences =
+                new BufferedSharedPreferences(target, 1, TimeUnit.HOURS, 100);
+        preferences.edit().putInt("ANY_INT", 1).putString("ANY_STRING", "Any").commit();
+
+        boolean isFlushed = preferences.flush();
+        preferences.edit().putInt("ANY_INT", 2).commit();
+
+        assertFalse("Flush should fail", isFlushed);
+        assertEquals("Failed changes should be pending", 2, preferences.pending());
+
+        failing[0] = false;
+        isFlushed = preferences.flush();
+
+        assertTrue("Flush should be retried", isFlushed);
+        assertEquals("Newer value should be written", 2, target.getInt("ANY_INT", 0));
+        assertEquals("Failed value should be written", "Any", target.getString("ANY_STRING", ""));
+        assertEquals("Nothing should be pending", 0, preferences.pending());
+
+    }
+
+    @After
+    public void cleanup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.getSharedPreferences("memory", Context.MODE_PRIVATE).edit().clear().commit();
+        context.getSharedPreferences("buffered", Context.MODE_PRIVATE).edit().clear().commit();
+    }
+}
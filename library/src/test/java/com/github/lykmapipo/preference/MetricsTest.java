@@ -0,0 +1,120 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.github.lykmapipo.common.Common;
+import com.github.lykmapipo.common.provider.Provider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Metrics Tests
+ *
+ * @author lally elias
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class MetricsTest {
+
+    private MetricsRegistry registry;
+
+    @Before
+    public void setup() {
+        Preferences.of(new Provider() {
+            @NonNull
+            @Override
+            public Context getApplicationContext() {
+                return ApplicationProvider.getApplicationContext();
+            }
+        });
+        registry = new MetricsRegistry();
+        Preferences.metrics(registry);
+    }
+
+    @Test
+    public void testShouldReportReadsAndWrites() {
+
+        Preferences.set("ANY_STRING", "Any");
+        Preferences.set("ANY_ACCOUNT", new PreferencesTest.Account("Any", "Any"));
+        Preferences.get("ANY_STRING", "");
+        Preferences.get("ANY_ACCOUNT", PreferencesTest.Account.class);
+
+        assertEquals("Writes should be reported", 2, registry.histogram(MetricsRegistry.WRITE).count());
+        assertEquals("Commits should be reported", 2, registry.histogram(MetricsRegistry.COMMIT).count());
+        assertEquals("Reads should be reported", 2, registry.histogram(MetricsRegistry.READ).count());
+        assertEquals("Encoding should be reported", 1, registry.histogram(MetricsRegistry.ENCODE).count());
+        assertEquals("Decoding should be reported", 1, registry.histogram(MetricsRegistry.DECODE).count());
+        assertEquals("Payload sizes should be reported", 2, registry.payloads().count());
+        assertTrue("Reads should be counted per key", registry.reads().containsValue(1L));
+
+    }
+
+    @Test
+    public void testShouldReportSwallowedErrors() {
+
+        Preferences.set("ANY_STRING", "Any");
+        Set<String> value = Preferences.get("ANY_STRING", new HashSet<String>());
+
+        assertTrue("Default value should be returned", value.isEmpty());
+        assertEquals("Error should be reported", 1, registry.errors());
+
+    }
+
+    @Test
+    public void testShouldReportCodecFallbacks() {
+
+        Preferences.set("ANY_PROFILE", Common.Value.toJson(new PreferencesTest.Profile("Any", 19)));
+        Preferences.codec(PreferencesTest.Profile.class, new PreferencesTest.ProfileCodec());
+        PreferencesTest.Profile profile = Preferences.get("ANY_PROFILE", PreferencesTest.Profile.class);
+
+        assertEquals("Json value should still be read", "Any", profile.name);
+        assertEquals("Codec failure should be reported", 1, registry.errors());
+
+    }
+
+    @Test
+    public void testShouldNotReportWhenDisabled() {
+
+        Preferences.metrics(null);
+        Preferences.set("ANY_STRING", "Any");
+
+        assertEquals("Writes should not be reported", 0, registry.histogram(MetricsRegistry.WRITE).count());
+
+    }
+
+    @Test
+    public void testShouldComputeHistogramPercentiles() {
+
+        MetricsRegistry.Histogram histogram = new MetricsRegistry.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals("Values should be counted", 100, histogram.count());
+        assertEquals("Mean should be computed", 50.5, histogram.mean(), 0.001);
+        assertEquals("Max should be tracked", 100, histogram.max());
+        assertEquals("Median should be within a factor of two", 63, histogram.percentile(0.5));
+        assertEquals("Percentile should not exceed max", 100, histogram.percentile(0.99));
+
+    }
+
+    @After
+    public void cleanup() {
+        Preferences.metrics(null);
+        Preferences.uncodec();
+        Preferences.clear();
+    }
+}
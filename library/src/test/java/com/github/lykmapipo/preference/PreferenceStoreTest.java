@@ -0,0 +1,168 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.github.lykmapipo.common.provider.Provider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PreferenceStore Tests
+ *
+ * @author lally elias
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceStoreTest {
+
+    @Before
+    public void setup() {
+        Preferences.of(new Provider() {
+            @NonNull
+            @Override
+            public Context getApplicationContext() {
+                return ApplicationProvider.getApplicationContext();
+            }
+        });
+    }
+
+    @Test
+    public void testShouldBeAbleToObtainNamedStore() {
+
+        PreferenceStore store = Preferences.store("session");
+
+        assertSame("Store should be reused", store, Preferences.store("session"));
+        assertEquals("Store should be named", "session", store.name());
+
+    }
+
+    @Test
+    public void testShouldIsolateNamedStores() {
+
+        String key = "ANY_STRING";
+
+        Boolean isSet = Preferences.store("session").set(key, "Any");
+
+        assertTrue("String should be set", isSet);
+        assertEquals("String should be same value", "Any", Preferences.store("session").get(key, ""));
+        assertFalse("String should not exist in other store", Preferences.store("cache").contains(key));
+        assertFalse("String should not exist in default store", Preferences.contains(key));
+
+    }
+
+    @Test
+    public void testShouldRouteKeysByPrefix() {
+
+        String key = "session.token";
+        Preferences.shard("session.", "session");
+
+        Boolean isSet = Preferences.set(key, "Any");
+
+        assertTrue("String should be set", isSet);
+        assertEquals("String should be same value", "Any", Preferences.get(key, ""));
+        assertTrue("String should exist in routed store", Preferences.store("session").contains(key));
+        assertFalse("String should not exist in default file", defaults().contains(key));
+
+        Preferences.shard("session.user.", "cache");
+        Preferences.set("session.user.name", "Any");
+
+        assertTrue("Longest prefix should win", Preferences.store("cache").contains("session.user.name"));
+        assertFalse("Shorter prefix should lose", Preferences.store("session").contains("session.user.name"));
+
+        Preferences.unshard("session.user.");
+        Preferences.set("session.user.name", "Other");
+
+        assertEquals("Unrouted prefix should fall back", "Other",
+                Preferences.store("session").get("session.user.name", ""));
+
+    }
+
+    @Test
+    public void testShouldRouteKeysByHash() {
+
+        Preferences.shard(4);
+
+        for (int i = 0; i < 20; i++) {
+            Preferences.set("ANY_INT_" + i, i);
+        }
+
+        int stored = 0;
+        for (int i = 0; i < 4; i++) {
+            stored += Preferences.store(Preferences.SHARD_PREFIX + i).getAll().size();
+        }
+        assertEquals("Values should be spread across shards", 20, stored);
+        assertEquals("Values should be read from shards", 7, Preferences.getInt("ANY_INT_7", 0));
+        assertEquals("All values should be listed", 20, Preferences.getAll().size());
+        assertFalse("Values should not exist in default file", defaults().contains("ANY_INT_7"));
+
+    }
+
+    @Test
+    public void testShouldOffloadLargeValues() {
+
+        final String key = "ANY_ACCOUNT";
+        Context context = ApplicationProvider.getApplicationContext();
+        File directory = new File(new File(context.getFilesDir(), LogEngine.DIRECTORY), "blobs.values");
+        PreferenceStore store = Preferences.store("blobs");
+        store.offload(16);
+
+        Boolean isSet = store.set(key, new PreferencesTest.Account("Any Long Name", "Any"));
+        store.set(key, new PreferencesTest.Account("Other Long Name", "Any"));
+        String raw = context.getSharedPreferences("blobs", Context.MODE_PRIVATE).getString(key, "");
+        PreferencesTest.Account account = store.get(key, PreferencesTest.Account.class);
+
+        assertTrue("Generic should be set", isSet);
+        assertEquals("Pointer should be stored", ValueFiles.MARKER, raw.charAt(0));
+        assertEquals("Generic should be read lazily", "Other Long Name", account.name);
+        assertEquals("Overwritten file should be deleted", 1, directory.list().length);
+        assertFalse("All values should be restored",
+                ((String) store.getAll().get(key)).startsWith(String.valueOf(ValueFiles.MARKER)));
+
+        store.remove(key);
+
+        assertEquals("Removed file should be deleted", 0, directory.list().length);
+
+        store.edit(new Batch.Action() {
+            @Override
+            public void run(@NonNull Batch batch) {
+                batch.set(key, new PreferencesTest.Account("Any Long Name", "Any"));
+                throw new IllegalStateException("Any failure");
+            }
+        });
+
+        assertEquals("Failed batch should not leave files", 0, directory.list().length);
+        store.offload(0);
+
+    }
+
+    private SharedPreferences defaults() {
+        Context context = ApplicationProvider.getApplicationContext();
+        return PreferenceManager.getDefaultSharedPreferences(context);
+    }
+
+    @After
+    public void cleanup() {
+        Preferences.clear();
+        Preferences.unshard("session.");
+        Preferences.unshard("session.user.");
+        Preferences.shard(0);
+        Preferences.store("session").clear();
+        Preferences.store("cache").clear();
+    }
+}
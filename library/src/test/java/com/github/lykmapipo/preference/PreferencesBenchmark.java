@@ -0,0 +1,310 @@
+package com.github.lykmapipo.preference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.github.lykmapipo.common.provider.Provider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Preferences Benchmarks.
+ * <p>
+ * Excluded from regular test runs, run them with
+ * {@code ./gradlew :library:testDebugUnitTest -Pbenchmark}; json reports are
+ * written to {@code library/build/reports/benchmarks}.
+ *
+ * @author lally elias
+ */
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferencesBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int[] SIZES = {10, 1000, 10000, 100000};
+    private static final int[] SUBSCRIBERS = {1, 10, 100, 1000};
+
+    @Before
+    public void setup() {
+        Preferences.of(new Provider() {
+            @NonNull
+            @Override
+            public Context getApplicationContext() {
+                return ApplicationProvider.getApplicationContext();
+            }
+        });
+        Preferences.codec(PreferencesTest.Profile.class, new PreferencesTest.ProfileCodec());
+    }
+
+    @Test
+    public void benchmarkReadsAndWrites() throws Exception {
+
+        Benchmark benchmark = new Benchmark("reads-and-writes");
+        Preferences.set("ANY_STRING", "Any");
+        Preferences.setInt("ANY_INT", 19);
+
+        for (final int threads : THREADS) {
+            benchmark.measure("getString", Benchmark.params(), threads, 10000, new Benchmark.Operation() {
+                @Override
+                public void run(int thread, int index) {
+                    Preferences.get("ANY_STRING", "");
+                }
+            });
+            benchmark.measure("getInt", Benchmark.params(), threads, 10000, new Benchmark.Operation() {
+                @Override
+                public void run(int thread, int index) {
+                    Preferences.getInt("ANY_INT", 0);
+                }
+            });
+            // same reads while one thread keeps committing the read keys
+            final AtomicBoolean writing = new AtomicBoolean(true);
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; writing.get(); i++) {
+                        Preferences.set("ANY_STRING", "Any " + (i % 2));
+                        Preferences.setInt("ANY_INT", i);
+                    }
+                }
+            });
+            writer.start();
+            try {
+                benchmark.measure("getString", Benchmark.params("writer", true), threads, 10000,
+                        new Benchmark.Operation() {
+                            @Override
+                            public void run(int thread, int index) {
+                                Preferences.get("ANY_STRING", "");
+                            }
+                        });
+                benchmark.measure("getInt", Benchmark.params("writer", true), threads, 10000,
+                        new Benchmark.Operation() {
+                            @Override
+                            public void run(int thread, int index) {
+                                Preferences.getInt("ANY_INT", 0);
+                            }
+                        });
+            } finally {
+                writing.set(false);
+                writer.join();
+            }
+            benchmark.measure("setInt", Benchmark.params("async", false), threads, 200,
+                    new Benchmark.Operation() {
+                        @Override
+                        public void run(int thread, int index) {
+                            Preferences.setInt("ANY_INT_" + thread, index);
+                        }
+                    });
+            Preferences.async(true);
+            benchmark.measure("setInt", Benchmark.params("async", true), threads, 200,
+                    new Benchmark.Operation() {
+                        @Override
+                        public void run(int thread, int index) {
+                            Preferences.setInt("ANY_INT_" + thread, index);
+                        }
+                    });
+            Preferences.flush().get();
+            Preferences.async(false);
+        }
+
+        assertTrue("Report should be written", benchmark.report().exists());
+
+    }
+
+    @Test
+    public void benchmarkTypedAndGenericAccess() throws Exception {
+
+        Benchmark benchmark = new Benchmark("typed-and-generic");
+        final PreferencesTest.Account account = new PreferencesTest.Account("Any", "Any");
+        final PreferencesTest.Profile profile = new PreferencesTest.Profile("Any", 19);
+        Preferences.set("ANY_ACCOUNT", account);
+        Preferences.set("ANY_PROFILE", profile);
+
+        benchmark.measure("getString", Benchmark.params(), 1, 10000, new Benchmark.Operation() {
+            @Override
+            public void run(int thread, int index) {
+                Preferences.get("ANY_ACCOUNT", "");
+            }
+        });
+        benchmark.measure("getGeneric", Benchmark.params("codec", "json", "cache", false),
+                1, 10000, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) {
+                        Preferences.get("ANY_ACCOUNT", PreferencesTest.Account.class);
+                    }
+                });
+        benchmark.measure("getGeneric", Benchmark.params("codec", "binary", "cache", false),
+                1, 10000, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) {
+                        Preferences.get("ANY_PROFILE", PreferencesTest.Profile.class);
+                    }
+                });
+        // only immutable types can be cached, badge has the same shape as account
+        Preferences.set("ANY_BADGE", new PreferencesTest.Badge("Any", "Any"));
+        Preferences.cache(PreferencesTest.Badge.class);
+        benchmark.measure("getGeneric", Benchmark.params("codec", "json", "cache", true),
+                1, 10000, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) {
+                        Preferences.get("ANY_BADGE", PreferencesTest.Badge.class);
+                    }
+                });
+        Preferences.uncache();
+        benchmark.measure("setGeneric", Benchmark.params("codec", "json"),
+                1, 200, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) {
+                        Preferences.set("ANY_ACCOUNT", account);
+                    }
+                });
+        benchmark.measure("setGeneric", Benchmark.params("codec", "binary"),
+                1, 200, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) {
+                        Preferences.set("ANY_PROFILE", profile);
+                    }
+                });
+
+        assertTrue("Report should be written", benchmark.report().exists());
+
+    }
+
+    @Test
+    public void benchmarkCodecs() throws Exception {
+
+        Benchmark benchmark = new Benchmark("codecs");
+        final PreferencesTest.Account account = new PreferencesTest.Account("Any", "Any");
+        final PreferencesTest.Profile profile = new PreferencesTest.Profile("Any", 19);
+        final String json = Codecs.encode(account);
+        final String binary = Codecs.encode(profile);
+
+        benchmark.measure("encode", Benchmark.params("codec", "json", "bytes", json.length()),
+                1, 10000, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) throws Exception {
+                        Codecs.encode(account);
+                    }
+                });
+        benchmark.measure("decode", Benchmark.params("codec", "json", "bytes", json.length()),
+                1, 10000, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) throws Exception {
+                        Codecs.decode(json, PreferencesTest.Account.class);
+                    }
+                });
+        benchmark.measure("encode", Benchmark.params("codec", "binary", "bytes", binary.length()),
+                1, 10000, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) throws Exception {
+                        Codecs.encode(profile);
+                    }
+                });
+        benchmark.measure("decode", Benchmark.params("codec", "binary", "bytes", binary.length()),
+                1, 10000, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) throws Exception {
+                        Codecs.decode(binary, PreferencesTest.Profile.class);
+                    }
+                });
+
+        assertTrue("Report should be written", benchmark.report().exists());
+
+    }
+
+    @Test
+    public void benchmarkObserverDispatch() throws Exception {
+
+        Benchmark benchmark = new Benchmark("observer-dispatch");
+        final AtomicLong delivered = new AtomicLong();
+        Dispatcher.Subscriber subscriber = new Dispatcher.Subscriber() {
+            @Override
+            public void onChanged(@Nullable String key) {
+                delivered.incrementAndGet();
+            }
+        };
+
+        for (final int subscribers : SUBSCRIBERS) {
+            final Dispatcher dispatcher = new Dispatcher();
+            for (int i = 0; i < subscribers; i++) {
+                dispatcher.subscribe("ANY_KEY_" + i, subscriber);
+            }
+            benchmark.measure("dispatch", Benchmark.params("subscribers", subscribers),
+                    1, 10000, new Benchmark.Operation() {
+                        @Override
+                        public void run(int thread, int index) {
+                            dispatcher.dispatch("ANY_KEY_" + (index % subscribers));
+                        }
+                    });
+        }
+
+        assertTrue("Subscribers should be notified", delivered.get() > 0);
+        assertTrue("Report should be written", benchmark.report().exists());
+
+    }
+
+    @Test
+    public void benchmarkEngines() throws Exception {
+
+        Benchmark benchmark = new Benchmark("engines").iterations(1, 3);
+        Engine[] engines = {new XmlEngine(), new LogEngine(), new MemoryEngine()};
+        String[] names = {"xml", "log", "memory"};
+
+        for (int e = 0; e < engines.length; e++) {
+            Engine engine = engines[e];
+            String name = names[e];
+            for (final int size : SIZES) {
+                final PreferenceStore store = Preferences.store("benchmark_" + name + "_" + size, engine);
+                populate(store, size);
+
+                // whole file rewrites make large xml stores slow, keep runs bounded
+                int writes = Math.max(5, Math.min(200, 100000 / size));
+                Map<String, Object> params = Benchmark.params("engine", name, "keys", size);
+                benchmark.measure("getInt", params, 1, 10000, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) {
+                        store.getInt("ANY_INT_" + (index % size), 0);
+                    }
+                });
+                benchmark.measure("setInt", params, 1, writes, new Benchmark.Operation() {
+                    @Override
+                    public void run(int thread, int index) {
+                        store.setInt("ANY_INT_" + (index % size), index);
+                    }
+                });
+                store.clear();
+            }
+        }
+
+        assertTrue("Report should be written", benchmark.report().exists());
+
+    }
+
+    private void populate(@NonNull PreferenceStore store, int size) {
+        SharedPreferences.Editor editor = store.editor();
+        for (int i = 0; i < size; i++) {
+            editor.putInt("ANY_INT_" + i, i);
+        }
+        editor.commit();
+    }
+
+    @After
+    public void cleanup() {
+        Preferences.async(false);
+        Preferences.uncodec();
+        Preferences.clear();
+    }
+}
@@ -1,25 +1,47 @@
 package com.github.lykmapipo.preference;
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
 
 import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.lifecycle.Observer;
 import androidx.test.core.app.ApplicationProvider;
 
+import com.github.lykmapipo.common.Common;
 import com.github.lykmapipo.common.provider.Provider;
 import com.google.gson.annotations.Expose;
+import com.sun.management.ThreadMXBean;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
-
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Preferences Tests
@@ -179,9 +201,666 @@ public class PreferencesTest {
 
     }
 
+    @Test
+    public void testShouldBeAbleToSetAsync() throws Exception {
+
+        String key = "ANY_ASYNC_STRING";
+        String value = "Any";
+
+        Preferences.async(true);
+        Boolean isSet = Preferences.set(key, value);
+        String setValue = Preferences.get(key, "");
+        Boolean isFlushed = Preferences.flush().get();
+
+        assertTrue("String should be set", isSet);
+        assertTrue("String should be same value", setValue.equals(value));
+        assertTrue("String should be persisted", isFlushed);
+
+    }
+
+    @Test
+    public void testShouldBeAbleToEditInBatch() {
+
+        final Account account = new Account("Any", "Any");
+
+        Preferences.set("ANY_REMOVED", "Any");
+        Boolean isSet = Preferences.edit(new Batch.Action() {
+            @Override
+            public void run(@NonNull Batch batch) {
+                batch.set("ANY_STRING", "Any")
+                        .set("ANY_INT", 19)
+                        .set("ANY_BOOL", true)
+                        .set("ANY_STRING_SET", "Any 1", "Any 2")
+                        .set("ANY_ACCOUNT", account)
+                        .remove("ANY_REMOVED");
+            }
+        });
+
+        assertTrue("Batch should be set", isSet);
+        assertTrue("String should be same value", Preferences.get("ANY_STRING", "").equals("Any"));
+        assertTrue("Integer should be same value", Preferences.get("ANY_INT", 0).equals(19));
+        assertTrue("Boolean should be same value", Preferences.get("ANY_BOOL", false));
+        assertTrue("String Set should have value",
+                Preferences.get("ANY_STRING_SET", new HashSet<String>()).contains("Any 2"));
+        assertTrue("Generic should be same value",
+                Preferences.get("ANY_ACCOUNT", Account.class).equals(account));
+        assertFalse("String should be removed", Preferences.contains("ANY_REMOVED"));
+
+    }
+
+    @Test
+    public void testShouldBeAbleToGetWithoutClassLock() throws Exception {
+
+        final String key = "ANY_STRING";
+        final String value = "Any";
+        final String[] read = new String[1];
+
+        Preferences.set(key, value);
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read[0] = Preferences.get(key, "");
+            }
+        });
+
+        synchronized (Preferences.class) {
+            reader.start();
+            reader.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        assertFalse("Read should not wait for class lock", reader.isAlive());
+        assertTrue("String should be same value", value.equals(read[0]));
+
+    }
+
+    @Test
+    public void testShouldBeAbleToSetPrimitives() {
+
+        assertTrue("Integer should be set", Preferences.setInt("ANY_INT", 1000));
+        assertTrue("Long should be set", Preferences.setLong("ANY_LONG", 1000L));
+        assertTrue("Float should be set", Preferences.setFloat("ANY_FLOAT", 1.9f));
+        assertTrue("Boolean should be set", Preferences.setBoolean("ANY_BOOL", true));
+
+        assertEquals("Integer should be same value", 1000, Preferences.getInt("ANY_INT", 0));
+        assertEquals("Long should be same value", 1000L, Preferences.getLong("ANY_LONG", 0L));
+        assertEquals("Float should be same value", 1.9f, Preferences.getFloat("ANY_FLOAT", 0f), 0f);
+        assertTrue("Boolean should be same value", Preferences.getBoolean("ANY_BOOL", false));
+
+    }
+
+    @Test
+    public void testShouldGetPrimitivesWithoutAllocation() {
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Allocation should be measurable", bean instanceof ThreadMXBean);
+        ThreadMXBean threads = (ThreadMXBean) bean;
+        assumeTrue("Allocation should be measurable", threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        int calls = 100000;
+        Preferences.setInt("ANY_INT", 1000);
+        Preferences.setLong("ANY_LONG", 1000L);
+        Preferences.setFloat("ANY_FLOAT", 1.9f);
+        Preferences.setBoolean("ANY_BOOL", true);
+        long sum = read(calls);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        sum += read(calls);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("Values should be read", sum > 0);
+        assertTrue("Primitive reads should not allocate per call", allocated < calls);
+
+    }
+
+    private long read(int calls) {
+        long sum = 0;
+        for (int i = 0; i < calls; i++) {
+            sum += Preferences.getInt("ANY_INT", 0);
+            sum += Preferences.getLong("ANY_LONG", 0L);
+            sum += (long) Preferences.getFloat("ANY_FLOAT", 0f);
+            sum += Preferences.getBoolean("ANY_BOOL", false) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Test
+    public void testShouldBeAbleToCacheGeneric() {
+
+        String key = "ANY_BADGE";
+        Badge value = new Badge("Any", "Any");
+        Preferences.cache(Badge.class);
+
+        Preferences.set(key, value);
+        Badge first = Preferences.get(key, Badge.class);
+        Badge second = Preferences.get(key, Badge.class);
+
+        assertEquals("Generic should be same value", "Any", first.name);
+        assertSame("Generic should be cached", first, second);
+
+        Preferences.set(key, new Badge("Other", "Any"));
+        Badge changed = Preferences.get(key, Badge.class);
+        assertEquals("Generic should be invalidated on set", "Other", changed.name);
+
+        PreferenceManager.getDefaultSharedPreferences(ApplicationProvider.<Context>getApplicationContext())
+                .edit().putString(key, Common.Value.toJson(value)).commit();
+        Badge external = Preferences.get(key, Badge.class);
+        assertEquals("Generic should be invalidated on external change", "Any", external.name);
+
+        Preferences.remove(key);
+        assertNull("Generic should be invalidated on remove", Preferences.get(key, Badge.class));
+
+        boolean rejected = false;
+        try {
+            Preferences.cache(Account.class);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue("Mutable type should not be cached", rejected);
+
+    }
+
+    @Test
+    public void testShouldBeAbleToSetWithCodec() {
+
+        String key = "ANY_PROFILE";
+        Profile legacy = new Profile("Any", 19);
+
+        Preferences.set(key, legacy);
+        Preferences.codec(Profile.class, new ProfileCodec());
+        Profile legacyValue = Preferences.get(key, Profile.class);
+
+        Profile value = new Profile("Other", 21);
+        Boolean isSet = Preferences.set(key, value);
+        Profile setValue = Preferences.get(key, Profile.class);
+
+        assertEquals("Json value should still be read", legacy, legacyValue);
+        assertTrue("Generic should be set", isSet);
+        assertEquals("Generic should be same value", value, setValue);
+        assertEquals("Generic should be binary encoded",
+                BinaryCodec.MARKER, Preferences.get(key, "").charAt(0));
+
+    }
+
+    @Test
+    public void testShouldBeAbleToCompress() {
+
+        String key = "ANY_COMPRESSED";
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append("Any value ");
+        }
+        String value = builder.toString();
+
+        Preferences.set(key, value);
+        Preferences.compress(key);
+        String legacyValue = Preferences.get(key, "");
+
+        Boolean isSet = Preferences.set(key, value);
+        Context context = ApplicationProvider.getApplicationContext();
+        String raw = PreferenceManager.getDefaultSharedPreferences(context).getString(key, "");
+
+        assertEquals("Uncompressed value should still be read", value, legacyValue);
+        assertTrue("String should be set", isSet);
+        assertEquals("String should be same value", value, Preferences.get(key, ""));
+        assertEquals("String should be compressed", Compression.MARKER, raw.charAt(0));
+        assertTrue("String should be smaller", raw.length() < value.length());
+        assertEquals("All values should be restored", value, Preferences.getAll().get(key));
+
+    }
+
+    @Test
+    public void testShouldBeAbleToScanPrefix() {
+
+        Preferences.set("cache.user.1", "Any 1");
+        assertEquals("Indexed keys should be found", 1, Preferences.keys("cache.user.").size());
+
+        Preferences.set("cache.user.2", "Any 2");
+        Preferences.setInt("cache.users", 2);
+        Preferences.set("cache.feed", "Any");
+
+        List<String> keys = Preferences.keys("cache.user.");
+        Map<String, ?> values = Preferences.getAll("cache.user");
+
+        assertEquals("Keys should be sorted", Arrays.asList("cache.user.1", "cache.user.2"), keys);
+        assertEquals("Prefix values should be read", 3, values.size());
+        assertEquals("Values should be same value", "Any 2", values.get("cache.user.2"));
+        assertEquals("Primitive values should be read", 2, values.get("cache.users"));
+
+        Boolean isRemoved = Preferences.removePrefix("cache.user.");
+
+        assertTrue("Prefix should be removed", isRemoved);
+        assertTrue("Removed keys should not be indexed", Preferences.keys("cache.user.").isEmpty());
+        assertFalse("Removed values should not be read", Preferences.contains("cache.user.1"));
+        assertTrue("Other keys should be kept", Preferences.contains("cache.feed"));
+
+    }
+
+    @Test
+    public void testShouldIndexWritesOffMainThread() throws Exception {
+
+        Preferences.set("cache.seed", "Any");
+        assertEquals("Index should be loaded", 1, Preferences.keys("cache.").size());
+
+        final List<String> keys = new ArrayList<String>();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Preferences.setInt("cache.int", 1);
+                Preferences.setLong("cache.long", 1L);
+                Preferences.setFloat("cache.float", 1F);
+                Preferences.setBoolean("cache.boolean", true);
+                Preferences.set("cache.set", "Any", "Other");
+                keys.addAll(Preferences.keys("cache."));
+            }
+        });
+        writer.start();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+
+        assertEquals("Primitive and set writes should be indexed", Arrays.asList(
+                "cache.boolean", "cache.float", "cache.int", "cache.long", "cache.seed", "cache.set"), keys);
+
+    }
+
+    @Test
+    public void testShouldBeAbleToSnapshot() {
+
+        Preferences.set("config.url", "https://any");
+        Preferences.setInt("config.timeout", 30);
+        Preferences.set("config.account", new Account("Any", "Any"));
+
+        Snapshot snapshot = Preferences.snapshot("config.url", "config.timeout", "config.account", "config.none");
+        Preferences.setInt("config.timeout", 60);
+
+        assertEquals("Snapshot should hold requested keys", 3, snapshot.keys().size());
+        assertEquals("String should be same value", "https://any", snapshot.getString("config.url", ""));
+        assertEquals("Integer should be captured value", 30, snapshot.getInt("config.timeout", 0));
+        assertEquals("Generic should be same value", "Any", snapshot.get("config.account", Account.class).name);
+        assertFalse("Missing key should not be captured", snapshot.contains("config.none"));
+        assertEquals("Whole store should be captured", 60, Preferences.snapshot().getInt("config.timeout", 0));
+
+    }
+
+    @Test
+    public void testShouldBeAbleToMigrate() throws Exception {
+
+        Preferences.set("user_name", "Any");
+        Preferences.set("ANY_ACCOUNT", new Account("Any", "Any"));
+
+        Preferences.migration(1, new Migration() {
+            @Override
+            public void migrate(@NonNull Migrator migrator) {
+                migrator.rename("user_name", "user.name");
+            }
+        });
+        Preferences.migration(2, new Migration() {
+            @Override
+            public void migrate(@NonNull final Migrator migrator) throws Exception {
+                migrator.rewrite("ANY_ACCOUNT", Account.class, new Migrator.Rewriter<Account>() {
+                    @Override
+                    public Object rewrite(@NonNull Account account) {
+                        return new Account(migrator.get("user.name", ""), "Other");
+                    }
+                });
+            }
+        });
+        Boolean isMigrated = Preferences.migrate().get();
+        Account account = Preferences.get("ANY_ACCOUNT", Account.class);
+
+        assertTrue("Preferences should be migrated", isMigrated);
+        assertEquals("Schema version should be persisted", 2, Preferences.version());
+        assertEquals("Key should be renamed", "Any", Preferences.get("user.name", ""));
+        assertFalse("Old key should be removed", Preferences.contains("user_name"));
+        assertEquals("Json should be rewritten", "Other", account.interest);
+        assertTrue("Up to date preferences should not migrate", Preferences.migrate().get());
+
+        Preferences.clear();
+
+        assertEquals("Schema version should outlive clear", 2, Preferences.version());
+
+    }
+
+    @Test
+    public void testShouldHideReservedKeys() {
+
+        Preferences.set("ANY_CACHED", "Any", 1, TimeUnit.HOURS);
+        Preferences.addToSet("ANY_SEEN", "id-1");
+        Preferences.list("ANY_QUEUE", Account.class, 3).append(new Account("Any", "Any"));
+        Preferences.set(Preferences.SCHEMA_VERSION, 1);
+
+        List<String> exposed = new ArrayList<String>(Preferences.getAll().keySet());
+        exposed.addAll(Preferences.keys(""));
+        exposed.addAll(Preferences.getAll("").keySet());
+        exposed.addAll(Preferences.snapshot().keys());
+
+        assertTrue("Value should be listed", exposed.contains("ANY_CACHED"));
+        for (String key : exposed) {
+            assertFalse("Reserved key should be hidden", PreferenceStore.isReserved(key));
+        }
+
+    }
+
+    @Test
+    public void testShouldExpireValues() throws Exception {
+
+        Preferences.set("ANY_CACHED", "Any", 1, TimeUnit.MILLISECONDS);
+        Preferences.set("ANY_KEPT", new Account("Any", "Any"), 1, TimeUnit.HOURS);
+        Preferences.set("ANY_PERMANENT", "Any", 1, TimeUnit.MILLISECONDS);
+        Preferences.set("ANY_PERMANENT", "Any");
+        Thread.sleep(10);
+
+        assertEquals("Expired value should be absent", "", Preferences.get("ANY_CACHED", ""));
+        assertFalse("Expired value should not be contained", Preferences.contains("ANY_CACHED"));
+        assertEquals("Live value should be read", "Any", Preferences.get("ANY_KEPT", Account.class).name);
+        assertFalse("Expired value should not be snapshot", Preferences.snapshot("ANY_CACHED").contains("ANY_CACHED"));
+
+        Preferences.set("ANY_REMOVED", "Any", 1, TimeUnit.HOURS);
+        Preferences.remove("ANY_REMOVED");
+        Preferences.set("ANY_KEPT", new Account("Other", "Any"));
+        Preferences.sweep();
+        Context context = ApplicationProvider.getApplicationContext();
+        SharedPreferences raw = PreferenceManager.getDefaultSharedPreferences(context);
+
+        assertFalse("Expired value should be swept", raw.contains("ANY_CACHED"));
+        assertFalse("Expiry should be swept", raw.contains(Expiries.companion("ANY_CACHED")));
+        assertFalse("Overwritten expiry should be swept", raw.contains(Expiries.companion("ANY_KEPT")));
+        assertFalse("Removed expiry should be removed", raw.contains(Expiries.companion("ANY_REMOVED")));
+        assertFalse("Rewritten expiry should be removed", raw.contains(Expiries.companion("ANY_PERMANENT")));
+        assertEquals("Value rewritten without time to live should be kept", "Any", Preferences.get("ANY_PERMANENT", ""));
+        assertEquals("Overwritten value should be kept", "Other", Preferences.get("ANY_KEPT", Account.class).name);
+
+    }
+
+    @Test
+    public void testShouldBeAbleToUpdateAtomically() throws Exception {
+
+        Preferences.async(true);
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 250; j++) {
+                        Preferences.increment("ANY_COUNTER", 1L);
+                    }
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        assertEquals("No increment should be lost", 1000L, Preferences.getLong("ANY_COUNTER", 0L));
+        assertTrue("Expected value should be swapped", Preferences.compareAndSet("ANY_COUNTER", 1000L, 0L));
+        assertFalse("Unexpected value should not be swapped", Preferences.compareAndSet("ANY_COUNTER", 1000L, 1L));
+        assertEquals("Increment should return new value", Long.valueOf(1L), Preferences.increment("ANY_COUNTER", 1L));
+        assertTrue("Absent value should be swapped", Preferences.compareAndSet("ANY_TOKEN", null, "Any"));
+        String updated = Preferences.update("ANY_TOKEN", "", new Updater<String>() {
+            @Override
+            public String update(String current) {
+                return current + " Other";
+            }
+        });
+
+        assertEquals("String should be updated", "Any Other", updated);
+        assertEquals("Updated string should be read", "Any Other", Preferences.get("ANY_TOKEN", ""));
+
+        Preferences.async(false);
+        Long incremented = Preferences.increment("ANY_COUNTER", 1L);
+        Context context = ApplicationProvider.getApplicationContext();
+        SharedPreferences raw = PreferenceManager.getDefaultSharedPreferences(context);
+
+        assertEquals("Increment should return new value", Long.valueOf(2L), incremented);
+        assertEquals("Increment should be written in sync mode", 2L, raw.getLong("ANY_COUNTER", 0L));
+
+    }
+
+    @Test
+    public void testShouldBeAbleToModifySetElements() {
+
+        for (int i = 0; i < 500; i++) {
+            Preferences.addToSet("ANY_SEEN", "id-" + i);
+        }
+        Boolean isRemoved = Preferences.removeFromSet("ANY_SEEN", "id-1", "id-2");
+        Context context = ApplicationProvider.getApplicationContext();
+        Map<String, ?> raw = PreferenceManager.getDefaultSharedPreferences(context).getAll();
+
+        assertTrue("Elements should be removed", isRemoved);
+        assertTrue("Element should be contained", Preferences.setContains("ANY_SEEN", "id-499"));
+        assertFalse("Removed element should not be contained", Preferences.setContains("ANY_SEEN", "id-1"));
+        assertEquals("All elements should be read", 498, Preferences.members("ANY_SEEN").size());
+        for (Map.Entry<String, ?> bucket : raw.entrySet()) {
+            if (bucket.getKey().startsWith(PreferenceStore.SET_PREFIX)) {
+                assertTrue("Buckets should hold part of the set", ((Set<?>) bucket.getValue()).size() < 100);
+            }
+        }
+
+        Preferences.clearSet("ANY_SEEN");
+
+        assertTrue("Set should be empty", Preferences.members("ANY_SEEN").isEmpty());
+
+    }
+
+    @Test
+    public void testShouldBeAbleToPageList() {
+
+        PagedList<Account> list = Preferences.list("ANY_QUEUE", Account.class, 3);
+        for (int i = 0; i < 7; i++) {
+            list.append(new Account("Any " + i, "Any"));
+        }
+        Boolean isAppended = list.append(Arrays.asList(new Account("Any 7", "Any"), new Account("Any 8", "Any")));
+
+        assertTrue("Items should be appended", isAppended);
+        assertEquals("All items should be counted", 9, list.size());
+        assertEquals("Item should be read by index", "Any 4", list.get(4).name);
+        List<Account> page = list.page(2, 3);
+        assertEquals("Page should be read", 3, page.size());
+        assertEquals("Page should start at offset", "Any 2", page.get(0).name);
+
+        Boolean isTrimmed = list.trim(4);
+        List<String> names = new ArrayList<String>();
+        for (Account account : list) {
+            names.add(account.name);
+        }
+
+        assertTrue("List should be trimmed", isTrimmed);
+        assertEquals("Newest items should be kept", Arrays.asList("Any 5", "Any 6", "Any 7", "Any 8"), names);
+        assertFalse("Trimmed chunks should be removed", Preferences.contains(PagedList.PREFIX + "ANY_QUEUE#0"));
+
+        list.clear();
+
+        assertTrue("List should be empty", list.isEmpty());
+        assertFalse("Iterator should be empty", list.iterator().hasNext());
+
+    }
+
+    @Test
+    public void testShouldBeAbleToPreload() throws Exception {
+
+        Provider provider = new Provider() {
+            @NonNull
+            @Override
+            public Context getApplicationContext() {
+                return ApplicationProvider.getApplicationContext();
+            }
+        };
+        Preferences.dispose();
+        Future<Boolean> loaded = Preferences.preload(provider, 5, TimeUnit.SECONDS, "session");
+
+        PreferenceStore session = Preferences.store("session");
+        Boolean isSet = Preferences.set("ANY_STRING", "Any");
+
+        assertTrue("Preferences should be loaded", loaded.get());
+        assertTrue("Preferences should be ready", Preferences.isReady());
+        assertTrue("Preferences should be ready", Preferences.await(0, TimeUnit.SECONDS));
+        assertTrue("Named store should open while loading", session.set("ANY_TOKEN", "Any"));
+        assertTrue("String should be set after waiting for load", isSet);
+        assertEquals("String should be same value", "Any", Preferences.get("ANY_STRING", ""));
+        session.clear();
+
+        Preferences.dispose();
+        Future<Boolean> abandoned = Preferences.preload(provider, 5, TimeUnit.SECONDS, "session");
+        Preferences.dispose();
+        abandoned.get();
+
+        assertFalse("Disposed preferences should not be published", Preferences.isReady());
+
+    }
+
+    @Test
+    public void testShouldDeliverDistinctEmissions() {
+
+        Preferences.distinct(true);
+        Preferences.set("ANY_OBSERVED", "Any");
+        final List<String> emitted = new ArrayList<String>();
+
+        ShadowLooper.pauseMainLooper();
+        Preferences.observe(new Owner(), "ANY_OBSERVED", "", new Observer<String>() {
+            @Override
+            public void onChanged(String value) {
+                emitted.add(value);
+            }
+        });
+        ShadowLooper.unPauseMainLooper();
+
+        assertEquals("Current value should be emitted", Arrays.asList("Any"), emitted);
+
+        ShadowLooper.pauseMainLooper();
+        for (int i = 0; i < 10; i++) {
+            Preferences.set("ANY_OBSERVED", "Any " + i);
+        }
+        ShadowLooper.unPauseMainLooper();
+
+        assertEquals("Burst should be a single emission", Arrays.asList("Any", "Any 9"), emitted);
+
+        ShadowLooper.pauseMainLooper();
+        Preferences.set("ANY_OBSERVED", "Other");
+        Preferences.set("ANY_OBSERVED", "Any 9");
+        ShadowLooper.unPauseMainLooper();
+
+        assertEquals("Duplicate should be suppressed", Arrays.asList("Any", "Any 9"), emitted);
+
+    }
+
+    @Test
+    public void testShouldObserveChangeSets() {
+
+        Preferences.set("form.name", "Any");
+        final List<ChangeSet> keyed = new ArrayList<ChangeSet>();
+        final List<ChangeSet> prefixed = new ArrayList<ChangeSet>();
+
+        ShadowLooper.pauseMainLooper();
+        Preferences.observe(new Owner(), Arrays.asList("form.name", "form.age"), new Observer<ChangeSet>() {
+            @Override
+            public void onChanged(ChangeSet changes) {
+                keyed.add(changes);
+            }
+        });
+        Preferences.observePrefix(new Owner(), "form.", new Observer<ChangeSet>() {
+            @Override
+            public void onChanged(ChangeSet changes) {
+                prefixed.add(changes);
+            }
+        });
+        ShadowLooper.unPauseMainLooper();
+
+        assertEquals("Current values should be emitted", 1, keyed.size());
+        assertEquals("String should be same value", "Any", keyed.get(0).get("form.name"));
+        assertEquals("Current prefix values should be emitted", 1, prefixed.size());
+
+        ShadowLooper.pauseMainLooper();
+        Preferences.edit(new Batch.Action() {
+            @Override
+            public void run(@NonNull Batch batch) {
+                batch.set("form.name", "Other").set("form.age", 30).set("other.name", "Any");
+            }
+        });
+        ShadowLooper.unPauseMainLooper();
+
+        Set<String> changed = new HashSet<String>(Arrays.asList("form.name", "form.age"));
+
+        assertEquals("Batch should be a single change set", 2, keyed.size());
+        assertEquals("Changed keys should be listed", changed, keyed.get(1).keys());
+        assertEquals("Integer should be same value", 30, (int) keyed.get(1).<Integer>get("form.age"));
+        assertEquals("Batch should be a single prefix change set", 2, prefixed.size());
+        assertEquals("Only keys with the prefix should be listed", changed, prefixed.get(1).keys());
+        assertFalse("Keys without the prefix should be filtered", prefixed.get(1).contains("other.name"));
+
+    }
+
     @After
     public void cleanup() {
+        Preferences.distinct(false);
+        Preferences.async(false);
+        Preferences.uncache();
+        Preferences.uncodec();
+        Preferences.unmigrate();
         Preferences.clear();
+        // schema version outlive clear
+        Preferences.remove(Preferences.SCHEMA_VERSION);
+    }
+
+    /**
+     * {@link LifecycleOwner} which is always resumed
+     */
+    static class Owner implements LifecycleOwner {
+        private final LifecycleRegistry lifecycle = new LifecycleRegistry(this);
+
+        Owner() {
+            lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        }
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return lifecycle;
+        }
+    }
+
+    public static class Profile {
+        @Expose
+        public String name;
+        @Expose
+        public int age;
+
+        public Profile(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Profile profile = (Profile) o;
+
+            if (age != profile.age) return false;
+            return name != null ? name.equals(profile.name) : profile.name == null;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = name != null ? name.hashCode() : 0;
+            result = 31 * result + age;
+            return result;
+        }
+    }
+
+    public static class ProfileCodec extends BinaryCodec<Profile> {
+        @Override
+        protected void write(@NonNull Profile value, @NonNull DataOutput output) throws IOException {
+            output.writeUTF(value.name);
+            output.writeInt(value.age);
+        }
+
+        @Override
+        protected Profile read(@NonNull DataInput input) throws IOException {
+            return new Profile(input.readUTF(), input.readInt());
+        }
     }
 
     public static class Account {
@@ -218,4 +897,16 @@ public class PreferencesTest {
             return name;
         }
     }
-}
\ No newline at end of file
+
+    public static final class Badge {
+        @Expose
+        public final String name;
+        @Expose
+        public final String level;
+
+        public Badge(String name, String level) {
+            this.name = name;
+            this.level = level;
+        }
+    }
+}